@@ -0,0 +1,40 @@
+package com.example.bankcards.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ограничение частоты запросов пользователя по группам эндпоинтов.
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+    private long cacheSize = 100_000;
+    private long idleMinutes = 10;
+
+    private Map<String, Group> groups = new LinkedHashMap<>();
+
+    @Getter
+    @Setter
+    public static class Group {
+        /** Ant-шаблоны путей, например /transfers/** */
+        private List<String> paths = new ArrayList<>();
+        /** HTTP-методы; пустой список — любые. */
+        private List<String> methods = new ArrayList<>();
+        /** Сколько запросов можно сделать подряд. */
+        private int capacity;
+        /** Скорость восполнения, запросов в секунду. */
+        private double refillPerSecond;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.bankcards.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Лимиты исходящих переводов с карты: за скользящие сутки и за скользящие 30 дней.
+ * Лимит карты важнее лимита роли, лимит роли важнее лимита по умолчанию.
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.limits")
+public class TransferLimitProperties {
+
+    private boolean enabled = true;
+    private boolean warmup = true;
+    private long cacheSize = 1_000_000;
+    private long cacheTtlMinutes = 1440;
+
+    private Limit defaults = new Limit();
+    private Map<String, Limit> roles = new HashMap<>();
+    private Map<UUID, Limit> cards = new HashMap<>();
+
+    public Limit resolve(UUID cardId, String role) {
+        Limit limit = cards.get(cardId);
+        if (limit == null && role != null) {
+            limit = roles.get(role);
+        }
+        return limit != null ? limit : defaults;
+    }
+
+    @Getter
+    @Setter
+    public static class Limit {
+        private BigDecimal dailyAmount;
+        private Integer dailyCount;
+        private BigDecimal monthlyAmount;
+        private Integer monthlyCount;
+    }
+}
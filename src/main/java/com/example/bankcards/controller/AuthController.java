@@ -2,22 +2,26 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.AuthRequestDto;
 import com.example.bankcards.dto.AuthResponseDto;
+import com.example.bankcards.dto.RefreshRequestDto;
 import com.example.bankcards.dto.UserResponseDto;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.security.AuthenticatedUser;
 import com.example.bankcards.security.JwtService;
+import com.example.bankcards.security.LoginService;
+import com.example.bankcards.security.RefreshTokenService;
+import com.example.bankcards.security.TokenRevocationService;
 import com.example.bankcards.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
@@ -25,7 +29,9 @@ import java.util.List;
 @Tag(name = "Authentication", description = "Аутентификация и регистрация пользователей")
 public class AuthController {
 
-    private final AuthenticationManager authenticationManager;
+    private final LoginService loginService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
     private final JwtService jwtService;
     private final UserService userService;
 
@@ -52,20 +58,47 @@ public class AuthController {
     @PostMapping("/login")
     @Operation(
             summary = "Вход в систему",
-            description = "Аутентификация пользователя. Возвращает JWT токен для доступа к защищенным эндпоинтам."
+            description = "Аутентификация пользователя. Возвращает JWT токен для доступа к защищенным эндпоинтам. "
+                    + "После серии неудачных попыток возвращает 429, при перегрузке 503."
     )
-    public AuthResponseDto login(@RequestBody @Valid AuthRequestDto request) {
+    public CompletableFuture<AuthResponseDto> login(@RequestBody @Valid AuthRequestDto request,
+                                                    HttpServletRequest httpRequest) {
 
-        Authentication auth = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.username(), request.password())
-        );
+        // Пароль проверяется на пуле входа, поток запроса освобождается на время BCrypt; токены выдаются
+        // на пуле завершения, чтобы подпись JWT и транзакция refresh-токена не занимали потоки BCrypt.
+        // В токен попадают ID и версия токена, поэтому дальше запросы обходятся без чтения пользователя
+        return loginService.authenticate(request.username(), request.password(), httpRequest.getRemoteAddr())
+                .thenApplyAsync(user -> new AuthResponseDto(jwtService.generateToken(user), refreshTokenService.issue(user)),
+                        loginService.completionExecutor());
+    }
+
+    @PostMapping("/refresh")
+    @Operation(
+            summary = "Обновление токена",
+            description = "Выдает новый JWT и новый refresh-токен в обмен на действующий refresh-токен. "
+                    + "Каждый refresh-токен одноразовый; повторное использование отзывает всю цепочку."
+    )
+    public AuthResponseDto refresh(@RequestBody @Valid RefreshRequestDto request) {
 
-        List<String> roles = auth.getAuthorities().stream()
-                .map(a -> a.getAuthority())
-                .toList();
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(request.refreshToken());
+
+        return new AuthResponseDto(jwtService.generateToken(rotation.user()), rotation.refreshToken());
+    }
+
+    @PostMapping("/logout")
+    @Operation(
+            summary = "Выход из системы",
+            description = "Отзывает текущий JWT до истечения его срока. Если передан refresh-токен, "
+                    + "отзывается и вся его цепочка."
+    )
+    public ResponseEntity<Void> logout(@AuthenticationPrincipal AuthenticatedUser user,
+                                       @RequestBody(required = false) RefreshRequestDto request) {
 
-        String token = jwtService.generateToken(request.username(), roles);
+        tokenRevocationService.revoke(user);
+        if (request != null && request.refreshToken() != null) {
+            refreshTokenService.revoke(request.refreshToken());
+        }
 
-        return new AuthResponseDto(token);
+        return ResponseEntity.noContent().build();
     }
 }
@@ -4,15 +4,18 @@ import com.example.bankcards.dto.BlockRequestCreateDto;
 import com.example.bankcards.dto.BlockRequestDecisionDto;
 import com.example.bankcards.dto.BlockRequestResponseDto;
 import com.example.bankcards.entity.BlockRequest;
+import com.example.bankcards.security.AuthenticatedUser;
 import com.example.bankcards.service.BlockRequestService;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.LockPolicy;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.security.Principal;
 import java.util.UUID;
 
 @RestController
@@ -23,6 +26,7 @@ import java.util.UUID;
 public class BlockRequestController {
 
     private final BlockRequestService blockRequestService;
+    private final LockPolicy lockPolicy;
 
     @PostMapping
     @Operation(
@@ -31,9 +35,9 @@ public class BlockRequestController {
                     "Запрос попадает на рассмотрение администратору."
     )
     public BlockRequestResponseDto create(@RequestBody @Valid BlockRequestCreateDto dto,
-                                          Principal principal) {
+                                          @AuthenticationPrincipal AuthenticatedUser user) {
 
-        BlockRequest req = blockRequestService.createRequest(dto.cardId(), principal.getName(), dto.comment());
+        BlockRequest req = blockRequestService.createRequest(dto.cardId(), user, dto.comment());
         return toDto(req);
     }
 
@@ -46,7 +50,7 @@ public class BlockRequestController {
                                            @RequestBody(required = false) @Valid BlockRequestDecisionDto dto) {
 
         String comment = dto != null ? dto.comment() : null;
-        BlockRequest req = blockRequestService.approve(id, comment);
+        BlockRequest req = lockPolicy.execute(CardService.LOCK_OPERATION, () -> blockRequestService.approve(id, comment));
         return toDto(req);
     }
 
@@ -1,8 +1,15 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BalanceAtDto;
 import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.dto.TransferHistoryPageDto;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.service.BalanceSnapshotService;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.LockPolicy;
+import com.example.bankcards.service.TransferExportService;
+import com.example.bankcards.service.TransferHistoryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -10,10 +17,18 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.security.Principal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -24,6 +39,10 @@ import java.util.UUID;
 public class CardController {
 
     private final CardService cardService;
+    private final TransferHistoryService transferHistoryService;
+    private final TransferExportService transferExportService;
+    private final BalanceSnapshotService balanceSnapshotService;
+    private final LockPolicy lockPolicy;
 
     @GetMapping("/{id}")
     @Operation(
@@ -41,8 +60,82 @@ public class CardController {
     )
     public Page<Card> getUserCards(@RequestParam("userId") UUID userId,
                                    Pageable pageable,
-                                   Principal principal) {
-        return cardService.getUserCards(userId, principal.getName(), pageable);
+                                   @AuthenticationPrincipal AuthenticatedUser user) {
+        return cardService.getUserCards(userId, user, pageable);
+    }
+
+    @GetMapping("/{id}/transfers")
+    @Operation(
+            summary = "Получить историю переводов по карте",
+            description = "Возвращает входящие и исходящие переводы карты от новых к старым. Для следующей страницы передайте " +
+                    "nextCursor из предыдущего ответа в параметре cursor. По умолчанию показывается последний год, " +
+                    "более ранний период задается параметром since. USER видит историю только своих карт, ADMIN - любых."
+    )
+    public TransferHistoryPageDto getTransfers(@PathVariable UUID id,
+                                               @RequestParam(value = "cursor", required = false) String cursor,
+                                               @RequestParam(value = "size", required = false) Integer size,
+                                               @RequestParam(value = "since", required = false)
+                                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+                                               Principal principal) {
+        return transferHistoryService.getHistory(id, cursor, size, since, principal.getName());
+    }
+
+    @GetMapping("/{id}/balance")
+    @Operation(
+            summary = "Получить баланс карты на момент времени",
+            description = "Считает баланс на указанный момент как ближайший дневной снимок плюс движения после него. " +
+                    "Если переводы за нужный период уже отсоединены в архив, считает назад от следующего снимка; " +
+                    "моменты раньше архивной границы не поддерживаются (400). " +
+                    "USER видит только свои карты, ADMIN - любые."
+    )
+    public BalanceAtDto getBalanceAt(@PathVariable UUID id,
+                                     @RequestParam("at") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at,
+                                     Principal principal) {
+        return balanceSnapshotService.getBalanceAt(id, at, principal.getName());
+    }
+
+    @PostMapping("/balance-snapshots")
+    @Operation(
+            summary = "Снять балансы всех карт на конец дня (только ADMIN)",
+            description = "Запускает снятие дневных снимков балансов за указанный день в фоне и сразу отвечает 202. " +
+                    "Обычно выполняется по расписанию, ручной запуск нужен для догрузки пропущенных дней. " +
+                    "Повторный запуск доделывает только необработанные части."
+    )
+    public ResponseEntity<Map<String, Object>> snapshotBalances(@RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        balanceSnapshotService.snapshotDay(date);
+        return ResponseEntity.accepted().body(Map.of("date", date, "status", "STARTED"));
+    }
+
+    @GetMapping("/{id}/transfers/export")
+    @Operation(
+            summary = "Выгрузить полную историю переводов по карте",
+            description = "Отдает переводы карты потоком в формате ndjson или csv, память сервера не зависит от длины истории. " +
+                    "Карта другого клиента выгружается только маской с последними 4 цифрами. " +
+                    "Без since/until выгружается вся история. " +
+                    "При заголовке Accept-Encoding: gzip ответ сжимается. USER может выгружать только свои карты, ADMIN - любые."
+    )
+    public ResponseEntity<StreamingResponseBody> exportTransfers(@PathVariable UUID id,
+                                                                 @RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                                                 @RequestParam(value = "since", required = false)
+                                                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+                                                                 @RequestParam(value = "until", required = false)
+                                                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime until,
+                                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                                 Principal principal) {
+
+        TransferExportService.Format exportFormat = TransferExportService.Format.parse(format);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        StreamingResponseBody body = transferExportService.export(id, exportFormat, gzip, since, until, principal.getName());
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"card-" + id + "-transfers." + exportFormat.extension() + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
     @PostMapping
@@ -60,7 +153,7 @@ public class CardController {
             description = "Меняет статус карты на BLOCKED. Заблокированной картой нельзя пользоваться."
     )
     public Card block(@PathVariable UUID id) {
-        return cardService.blockCard(id);
+        return lockPolicy.execute(CardService.LOCK_OPERATION, () -> cardService.blockCard(id));
     }
 
     @PostMapping("/{id}/unblock")
@@ -69,7 +162,7 @@ public class CardController {
             description = "Меняет статус карты на ACTIVE. Разблокировать можно только действующую (не истекшую) карту."
     )
     public Card unblock(@PathVariable UUID id) {
-        return cardService.unblockCard(id);
+        return lockPolicy.execute(CardService.LOCK_OPERATION, () -> cardService.unblockCard(id));
     }
 
     @DeleteMapping("/{id}")
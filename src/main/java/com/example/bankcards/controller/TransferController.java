@@ -1,19 +1,42 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BatchTransferItemResultDto;
+import com.example.bankcards.dto.BatchTransferRequestDto;
+import com.example.bankcards.dto.BatchTransferResponseDto;
+import com.example.bankcards.dto.PanTransferRequestDto;
+import com.example.bankcards.dto.PanTransferResponseDto;
 import com.example.bankcards.dto.TransferRequestDto;
+import com.example.bankcards.dto.TransferResponseDto;
+import com.example.bankcards.dto.TransferStatusDto;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.TransferRequest;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.service.LockPolicy;
+import com.example.bankcards.service.PanResolver;
+import com.example.bankcards.service.TransferIdempotencyService;
 import com.example.bankcards.service.TransferService;
+import com.example.bankcards.util.CardMaskingUtil;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.bind.annotation.RequestBody;
 
-import java.security.Principal;
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequiredArgsConstructor
@@ -22,26 +45,173 @@ import java.security.Principal;
 @Tag(name = "Transfers", description = "Переводы между картами")
 public class TransferController {
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final TransferService transferService;
+    private final TransferIdempotencyService transferIdempotencyService;
+    private final LockPolicy lockPolicy;
+    private final PanResolver panResolver;
+    private final CardMaskingUtil cardMaskingUtil;
 
     @PostMapping
     @Operation(
             summary = "Выполнить перевод между своими картами",
             description = "Переводит средства с одной карты на другую. Обе карты должны принадлежать текущему пользователю. " +
-                    "Карты должны быть активны и иметь достаточный баланс."
+                    "Карты должны быть активны и иметь достаточный баланс. " +
+                    "Повтор запроса с тем же заголовком Idempotency-Key возвращает результат первого перевода, не списывая деньги повторно."
     )
-    public ResponseEntity<Void> transfer(@RequestBody @Valid TransferRequestDto request,
-                                         Principal principal) {
+    public ResponseEntity<TransferResponseDto> transfer(
+            @RequestBody @Valid TransferRequestDto request,
+            @Parameter(description = "Уникальный ключ запроса клиента для безопасных повторов")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+
+        String username = user.username();
+
+        if (idempotencyKey != null) {
+            transferIdempotencyService.validateKey(idempotencyKey);
 
-        String username = principal.getName();
+            Optional<TransferResponseDto> previous = transferIdempotencyService.findPrevious(
+                    username,
+                    request.fromCardId(),
+                    request.toCardId(),
+                    request.amount(),
+                    idempotencyKey
+            );
+            if (previous.isPresent()) {
+                return ResponseEntity.ok()
+                        .header(IDEMPOTENT_REPLAYED_HEADER, "true")
+                        .body(previous.get());
+            }
+        }
 
-        transferService.transfer(
+        Transfer transfer = lockPolicy.execute(TransferService.LOCK_OPERATION, () -> transferService.transfer(
                 request.fromCardId(),
                 request.toCardId(),
                 request.amount(),
-                username
+                user,
+                idempotencyKey
+        ));
+
+        TransferResponseDto body = TransferResponseDto.from(transfer);
+        if (idempotencyKey != null) {
+            transferIdempotencyService.remember(username, idempotencyKey, body);
+        }
+
+        return ResponseEntity.ok(body);
+    }
+
+    @PostMapping("/to-card")
+    @Operation(
+            summary = "Перевести на карту другого клиента",
+            description = "Переводит средства со своей карты на карту другого клиента по её номеру. " +
+                    "Карта получателя должна быть активна; в ответе о ней возвращается только маска с последними 4 цифрами. " +
+                    "Несуществующая, неактивная и просроченная карта получателя дают один и тот же отказ 422. " +
+                    "Повтор запроса с тем же заголовком Idempotency-Key возвращает результат первого перевода."
+    )
+    public ResponseEntity<PanTransferResponseDto> transferToCard(
+            @RequestBody @Valid PanTransferRequestDto request,
+            @Parameter(description = "Уникальный ключ запроса клиента для безопасных повторов")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+
+        String username = user.username();
+        transferService.checkSourceCard(request.fromCardId(), user);
+        UUID toCardId;
+        try {
+            toCardId = panResolver.resolve(request.toPan());
+        } catch (ResourceNotFoundException e) {
+            throw TransferService.destinationRejected();
+        }
+        String toCardMasked = cardMaskingUtil.maskPan(cardMaskingUtil.extractLast4(request.toPan()));
+
+        if (idempotencyKey != null) {
+            transferIdempotencyService.validateKey(idempotencyKey);
+
+            Optional<TransferResponseDto> previous = transferIdempotencyService.findPrevious(
+                    username,
+                    request.fromCardId(),
+                    toCardId,
+                    request.amount(),
+                    idempotencyKey
+            );
+            if (previous.isPresent()) {
+                return ResponseEntity.ok()
+                        .header(IDEMPOTENT_REPLAYED_HEADER, "true")
+                        .body(PanTransferResponseDto.of(previous.get(), toCardMasked));
+            }
+        }
+
+        Transfer transfer = lockPolicy.execute(TransferService.LOCK_OPERATION, () -> transferService.transferToCustomer(
+                request.fromCardId(),
+                toCardId,
+                request.amount(),
+                user,
+                idempotencyKey
+        ));
+
+        TransferResponseDto body = TransferResponseDto.from(transfer);
+        if (idempotencyKey != null) {
+            transferIdempotencyService.remember(username, idempotencyKey, body);
+        }
+
+        return ResponseEntity.ok(PanTransferResponseDto.of(body, toCardMasked));
+    }
+
+    @PostMapping("/batch")
+    @Operation(
+            summary = "Выполнить пакет переводов между своими картами",
+            description = "Выполняет до нескольких сотен переводов в одной транзакции. Все затронутые карты блокируются одним запросом " +
+                    "в порядке ID, балансы проверяются последовательно в порядке элементов пакета. " +
+                    "Для каждого элемента возвращается результат: COMPLETED с ID перевода или REJECTED с причиной."
+    )
+    public BatchTransferResponseDto transferBatch(@RequestBody @Valid BatchTransferRequestDto request,
+                                                  @AuthenticationPrincipal AuthenticatedUser user) {
+
+        List<BatchTransferItemResultDto> results = lockPolicy.execute(TransferService.LOCK_OPERATION,
+                () -> transferService.transferBatch(request.transfers(), user));
+        return BatchTransferResponseDto.of(results);
+    }
+
+    @PostMapping("/async")
+    @Operation(
+            summary = "Поставить перевод в очередь",
+            description = "Принимает перевод и сразу возвращает 202 с ID заявки. Переводы из очереди проводятся пакетами " +
+                    "в фоне, статус можно получить через GET /transfers/{id}. " +
+                    "Повтор с тем же заголовком Idempotency-Key возвращает ту же заявку."
+    )
+    public ResponseEntity<TransferStatusDto> submit(
+            @RequestBody @Valid TransferRequestDto request,
+            @Parameter(description = "Уникальный ключ запроса клиента для безопасных повторов")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+
+        if (idempotencyKey != null) {
+            transferIdempotencyService.validateKey(idempotencyKey);
+        }
+
+        TransferRequest queued = transferService.submit(
+                request.fromCardId(),
+                request.toCardId(),
+                request.amount(),
+                user,
+                idempotencyKey
         );
 
-        return ResponseEntity.noContent().build();
+        return ResponseEntity.accepted()
+                .location(URI.create("/transfers/" + queued.getId()))
+                .body(TransferStatusDto.from(queued));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(
+            summary = "Получить статус перевода",
+            description = "Возвращает статус перевода: PENDING, COMPLETED или REJECTED с причиной. " +
+                    "Пользователь видит только свои переводы, администратор - любые. " +
+                    "Карта получателя другого клиента возвращается только маской с последними 4 цифрами."
+    )
+    public TransferStatusDto getStatus(@PathVariable UUID id, @AuthenticationPrincipal AuthenticatedUser user) {
+        return transferService.getStatus(id, user);
     }
 }
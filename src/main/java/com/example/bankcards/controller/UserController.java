@@ -1,5 +1,7 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.UserResponseDto;
+import com.example.bankcards.entity.User;
 import com.example.bankcards.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -7,7 +9,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.UUID;
@@ -38,4 +42,19 @@ public class UserController {
     public void enable(@PathVariable UUID id) {
         userService.enableUser(id);
     }
+
+    @PutMapping("/{id}/role")
+    @Operation(
+            summary = "Изменить роль пользователя (только ADMIN)",
+            description = "Назначает пользователю роль, например ROLE_USER или ROLE_ADMIN. Новые права действуют со следующего запроса."
+    )
+    public UserResponseDto changeRole(@PathVariable UUID id, @RequestParam("role") String role) {
+        User user = userService.changeRole(id, role);
+
+        return new UserResponseDto(
+                user.getId(),
+                user.getUsername(),
+                user.getRole().getName()
+        );
+    }
 }
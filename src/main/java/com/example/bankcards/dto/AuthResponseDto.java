@@ -1,4 +1,4 @@
 package com.example.bankcards.dto;
 
-public record AuthResponseDto(String token) {
+public record AuthResponseDto(String token, String refreshToken) {
 }
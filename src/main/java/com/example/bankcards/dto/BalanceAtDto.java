@@ -0,0 +1,14 @@
+package com.example.bankcards.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record BalanceAtDto(
+        UUID cardId,
+        LocalDateTime at,
+        BigDecimal balance,
+        LocalDate snapshotDate
+) {
+}
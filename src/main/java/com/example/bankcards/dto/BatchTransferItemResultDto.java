@@ -0,0 +1,21 @@
+package com.example.bankcards.dto;
+
+import java.util.UUID;
+
+public record BatchTransferItemResultDto(
+        int index,
+        String status,
+        UUID transferId,
+        String error
+) {
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_REJECTED = "REJECTED";
+
+    public static BatchTransferItemResultDto completed(int index, UUID transferId) {
+        return new BatchTransferItemResultDto(index, STATUS_COMPLETED, transferId, null);
+    }
+
+    public static BatchTransferItemResultDto rejected(int index, String error) {
+        return new BatchTransferItemResultDto(index, STATUS_REJECTED, null, error);
+    }
+}
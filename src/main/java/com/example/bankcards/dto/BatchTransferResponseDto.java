@@ -0,0 +1,16 @@
+package com.example.bankcards.dto;
+
+import java.util.List;
+
+public record BatchTransferResponseDto(
+        int completed,
+        int rejected,
+        List<BatchTransferItemResultDto> results
+) {
+    public static BatchTransferResponseDto of(List<BatchTransferItemResultDto> results) {
+        int completed = (int) results.stream()
+                .filter(r -> BatchTransferItemResultDto.STATUS_COMPLETED.equals(r.status()))
+                .count();
+        return new BatchTransferResponseDto(completed, results.size() - completed, results);
+    }
+}
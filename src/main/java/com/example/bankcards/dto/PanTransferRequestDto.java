@@ -0,0 +1,16 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record PanTransferRequestDto(
+        @NotNull UUID fromCardId,
+        @NotNull @Pattern(regexp = "\\d{13,19}") String toPan,
+        @NotNull @Positive @Digits(integer = 17, fraction = 2) BigDecimal amount
+) {
+}
@@ -0,0 +1,26 @@
+package com.example.bankcards.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Результат перевода другому клиенту: о карте получателя отправитель видит только маску с последними 4 цифрами.
+ */
+public record PanTransferResponseDto(
+        UUID id,
+        UUID fromCardId,
+        String toCardMasked,
+        BigDecimal amount,
+        LocalDateTime createdAt
+) {
+    public static PanTransferResponseDto of(TransferResponseDto transfer, String toCardMasked) {
+        return new PanTransferResponseDto(
+                transfer.id(),
+                transfer.fromCardId(),
+                toCardMasked,
+                transfer.amount(),
+                transfer.createdAt()
+        );
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record RefreshRequestDto(
+        @NotBlank String refreshToken
+) {
+}
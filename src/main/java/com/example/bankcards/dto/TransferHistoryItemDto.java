@@ -0,0 +1,34 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.repository.TransferView;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Строка истории переводов карты. Если карта на другой стороне принадлежит другому клиенту,
+ * вместо её ID отдаётся маска с последними 4 цифрами.
+ */
+public record TransferHistoryItemDto(
+        UUID id,
+        UUID fromCardId,
+        String fromCardMasked,
+        UUID toCardId,
+        String toCardMasked,
+        BigDecimal amount,
+        LocalDateTime createdAt
+) {
+    public static TransferHistoryItemDto of(TransferView view, UUID cardId, String counterpartyMasked) {
+        if (counterpartyMasked == null) {
+            return new TransferHistoryItemDto(view.getId(), view.getFromCardId(), null, view.getToCardId(), null,
+                    view.getAmount(), view.getCreatedAt());
+        }
+        if (cardId.equals(view.getFromCardId())) {
+            return new TransferHistoryItemDto(view.getId(), view.getFromCardId(), null, null, counterpartyMasked,
+                    view.getAmount(), view.getCreatedAt());
+        }
+        return new TransferHistoryItemDto(view.getId(), null, counterpartyMasked, view.getToCardId(), null,
+                view.getAmount(), view.getCreatedAt());
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.bankcards.dto;
 
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 
@@ -9,6 +10,6 @@ import java.util.UUID;
 public record TransferRequestDto(
         @NotNull UUID fromCardId,
         @NotNull UUID toCardId,
-        @NotNull @Positive BigDecimal amount
+        @NotNull @Positive @Digits(integer = 17, fraction = 2) BigDecimal amount
 ) {
 }
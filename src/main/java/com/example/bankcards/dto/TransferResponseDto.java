@@ -0,0 +1,25 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.Transfer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record TransferResponseDto(
+        UUID id,
+        UUID fromCardId,
+        UUID toCardId,
+        BigDecimal amount,
+        LocalDateTime createdAt
+) {
+    public static TransferResponseDto from(Transfer transfer) {
+        return new TransferResponseDto(
+                transfer.getId(),
+                transfer.getFromCard().getId(),
+                transfer.getToCard().getId(),
+                transfer.getAmount().toBigDecimal(),
+                transfer.getCreatedAt()
+        );
+    }
+}
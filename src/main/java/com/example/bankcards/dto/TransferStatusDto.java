@@ -0,0 +1,55 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.TransferRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Статус перевода. Если карта получателя принадлежит другому клиенту, вместо её ID отдаётся маска
+ * с последними 4 цифрами, как в ответе на перевод по номеру карты.
+ */
+public record TransferStatusDto(
+        UUID id,
+        String status,
+        UUID fromCardId,
+        UUID toCardId,
+        String toCardMasked,
+        BigDecimal amount,
+        String error,
+        LocalDateTime createdAt,
+        LocalDateTime processedAt
+) {
+    public static TransferStatusDto from(TransferRequest request) {
+        return new TransferStatusDto(
+                request.getId(),
+                request.getStatus(),
+                request.getFromCardId(),
+                request.getToCardId(),
+                null,
+                request.getAmount().toBigDecimal(),
+                request.getError(),
+                request.getCreatedAt(),
+                request.getProcessedAt()
+        );
+    }
+
+    /**
+     * @param toCardMasked маска карты другого клиента; null, если карта получателя своя
+     */
+    public static TransferStatusDto completed(Transfer transfer, String toCardMasked) {
+        return new TransferStatusDto(
+                transfer.getId(),
+                "COMPLETED",
+                transfer.getFromCard().getId(),
+                toCardMasked == null ? transfer.getToCard().getId() : null,
+                toCardMasked,
+                transfer.getAmount().toBigDecimal(),
+                null,
+                transfer.getCreatedAt(),
+                transfer.getCreatedAt()
+        );
+    }
+}
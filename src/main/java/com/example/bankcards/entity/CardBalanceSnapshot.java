@@ -0,0 +1,50 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Баланс карты на конец дня snapshotDate.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "card_balance_snapshots")
+@IdClass(CardBalanceSnapshot.Key.class)
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class CardBalanceSnapshot {
+    @Id
+    @Column(name = "card_id")
+    @EqualsAndHashCode.Include
+    private UUID cardId;
+
+    @Id
+    @Column(name = "snapshot_date")
+    @EqualsAndHashCode.Include
+    private LocalDate snapshotDate;
+
+    @Column(nullable = false)
+    private BigDecimal balance;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private UUID cardId;
+        private LocalDate snapshotDate;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.UuidUtil;
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "card_deposits")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class CardDeposit implements Persistable<UUID> {
+    @Id
+    @EqualsAndHashCode.Include
+    private UUID id = UuidUtil.timeOrdered();
+
+    @Column(name = "card_id", nullable = false)
+    private UUID cardId;
+
+    @Column(nullable = false)
+    private Money amount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Transient
+    private boolean isNew = true;
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Отозванный до истечения JWT. Строка нужна только пока токен не истёк, потом удаляется.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "revoked_tokens")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class RevokedToken {
+    @Id
+    @EqualsAndHashCode.Include
+    private UUID jti;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt;
+}
@@ -1,12 +1,14 @@
 package com.example.bankcards.entity;
 
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.UuidUtil;
 import jakarta.persistence.*;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.domain.Persistable;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -16,11 +18,10 @@ import java.util.UUID;
 @NoArgsConstructor
 @Table(name = "transfers")
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
-public class Transfer {
+public class Transfer implements Persistable<UUID> {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
     @EqualsAndHashCode.Include
-    private UUID id;
+    private UUID id = UuidUtil.timeOrdered();
 
     @ManyToOne
     @JoinColumn(name = "from_card_id", nullable = false)
@@ -31,8 +32,25 @@ public class Transfer {
     private Card toCard;
 
     @Column(nullable = false)
-    private BigDecimal amount;
+    private Money amount;
 
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
+    @Transient
+    private boolean isNew = true;
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
 }
@@ -0,0 +1,78 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Ключ идемпотентности перевода. Хранится отдельно от секционированной transfers,
+ * потому что там уникальность возможна только вместе с created_at.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "transfer_idempotency_keys")
+@IdClass(TransferIdempotencyKey.Key.class)
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class TransferIdempotencyKey implements Persistable<TransferIdempotencyKey.Key> {
+    @Id
+    @Column(name = "from_card_id")
+    @EqualsAndHashCode.Include
+    private UUID fromCardId;
+
+    @Id
+    @Column(name = "idempotency_key", length = 100)
+    @EqualsAndHashCode.Include
+    private String idempotencyKey;
+
+    @Column(name = "transfer_id", nullable = false)
+    private UUID transferId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Transient
+    private boolean isNew = true;
+
+    public TransferIdempotencyKey(Transfer transfer) {
+        this.fromCardId = transfer.getFromCard().getId();
+        this.idempotencyKey = transfer.getIdempotencyKey();
+        this.transferId = transfer.getId();
+        this.createdAt = transfer.getCreatedAt();
+    }
+
+    @Override
+    public Key getId() {
+        return new Key(fromCardId, idempotencyKey);
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private UUID fromCardId;
+        private String idempotencyKey;
+    }
+}
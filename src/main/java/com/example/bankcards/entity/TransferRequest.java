@@ -0,0 +1,66 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.UuidUtil;
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "transfer_requests")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class TransferRequest implements Persistable<UUID> {
+    @Id
+    @EqualsAndHashCode.Include
+    private UUID id = UuidUtil.timeOrdered();
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(name = "from_card_id", nullable = false)
+    private UUID fromCardId;
+
+    @Column(name = "to_card_id", nullable = false)
+    private UUID toCardId;
+
+    @Column(nullable = false)
+    private Money amount;
+
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
+    @Column(nullable = false, length = 30)
+    private String status;
+
+    @Column(length = 500)
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    @Transient
+    private boolean isNew = true;
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
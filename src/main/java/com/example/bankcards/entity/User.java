@@ -34,6 +34,12 @@ public class User {
     @Column(nullable = false)
     private boolean enabled = true;
 
+    /**
+     * Увеличивается при отключении и смене роли; JWT с меньшей версией перестают приниматься.
+     */
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
+
     @Column(name = "created_at",nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 }
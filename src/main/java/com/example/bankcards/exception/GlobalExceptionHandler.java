@@ -1,5 +1,9 @@
 package com.example.bankcards.exception;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -10,11 +14,21 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
+@Slf4j
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    // Гонка двух запросов с одним Idempotency-Key: проигравший упирается в один из этих ключей
+    static final List<String> IDEMPOTENCY_CONSTRAINTS = List.of(
+            "pk_transfer_idempotency_keys",
+            "uq_transfers_from_card_idempotency_key",
+            "uq_transfer_requests_user_idempotency_key"
+    );
+
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<Map<String, Object>> handleNotFound(ResourceNotFoundException ex) {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
@@ -47,6 +61,35 @@ public class GlobalExceptionHandler {
         ));
     }
 
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Map<String, Object>> handleConflict(DataIntegrityViolationException ex) {
+        if (isIdempotencyConflict(ex)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "error", "CONFLICT",
+                    "message", "Request with this idempotency key is already being processed"
+            ));
+        }
+        log.warn("Data integrity violation: {}", NestedExceptionUtils.getMostSpecificCause(ex).getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                "error", "CONFLICT",
+                "message", "Request violates a data integrity constraint"
+        ));
+    }
+
+    static boolean isIdempotencyConflict(DataIntegrityViolationException ex) {
+        // Имя ограничения Postgres пишет в текст ошибки: duplicate key value violates unique constraint "..."
+        String message = NestedExceptionUtils.getMostSpecificCause(ex).getMessage();
+        return message != null && IDEMPOTENCY_CONSTRAINTS.stream().anyMatch(message::contains);
+    }
+
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleConcurrencyFailure(ConcurrencyFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                "error", "CONFLICT",
+                "message", "Card is busy with another operation, retry later"
+        ));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> handleValidation(MethodArgumentNotValidException ex) {
         Map<String, String> fields = new HashMap<>();
@@ -68,4 +111,24 @@ public class GlobalExceptionHandler {
                 "message", "Invalid username or password"
         ));
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, Object>> handleRejected(RejectedExecutionException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(Map.of(
+                        "error", "SERVICE_UNAVAILABLE",
+                        "message", "Server is busy, retry later"
+                ));
+    }
+
+    @ExceptionHandler(LoginThrottledException.class)
+    public ResponseEntity<Map<String, Object>> handleLoginThrottled(LoginThrottledException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", Long.toString(ex.getRetryAfterSeconds()))
+                .body(Map.of(
+                        "error", "TOO_MANY_REQUESTS",
+                        "message", "Too many failed login attempts, retry later"
+                ));
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardBalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface CardBalanceSnapshotRepository extends JpaRepository<CardBalanceSnapshot, CardBalanceSnapshot.Key> {
+
+    Optional<CardBalanceSnapshot> findFirstByCardIdAndSnapshotDateLessThanOrderBySnapshotDateDesc(UUID cardId, LocalDate date);
+
+    Optional<CardBalanceSnapshot> findFirstByCardIdAndSnapshotDateGreaterThanEqualOrderBySnapshotDateAsc(UUID cardId, LocalDate date);
+
+    /**
+     * Отмечает чанк как обработанный. Возвращает 0, если чанк уже сделан (или прямо сейчас делается в другой транзакции).
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO balance_snapshot_chunks (snapshot_date, chunk_no, card_count, finished_at)
+            VALUES (:day, :chunkNo, 0, now())
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int claimChunk(@Param("day") LocalDate day, @Param("chunkNo") int chunkNo);
+
+    @Modifying
+    @Query(value = """
+            UPDATE balance_snapshot_chunks
+            SET card_count = :cardCount, finished_at = now()
+            WHERE snapshot_date = :day AND chunk_no = :chunkNo
+            """, nativeQuery = true)
+    int finishChunk(@Param("day") LocalDate day, @Param("chunkNo") int chunkNo, @Param("cardCount") long cardCount);
+
+    @Query(value = "SELECT count(*) FROM balance_snapshot_chunks WHERE snapshot_date = :day", nativeQuery = true)
+    int countFinishedChunks(@Param("day") LocalDate day);
+
+    /**
+     * Снимок на конец дня для карт из диапазона: последний предыдущий снимок карты плюс движения после него.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO card_balance_snapshots (card_id, snapshot_date, balance, created_at)
+            SELECT c.id,
+                   :day,
+                   COALESCE(s.balance, 0)
+                   + COALESCE((SELECT sum(t.amount) FROM transfers t
+                               WHERE t.to_card_id = c.id AND t.created_at >= COALESCE(s.next_day, :epoch) AND t.created_at < :dayEnd), 0)
+                   - COALESCE((SELECT sum(t.amount) FROM transfers t
+                               WHERE t.from_card_id = c.id AND t.created_at >= COALESCE(s.next_day, :epoch) AND t.created_at < :dayEnd), 0)
+                   + COALESCE((SELECT sum(d.amount) FROM card_deposits d
+                               WHERE d.card_id = c.id AND d.created_at >= COALESCE(s.next_day, :epoch) AND d.created_at < :dayEnd), 0),
+                   now()
+            FROM cards c
+            LEFT JOIN LATERAL (
+                SELECT CAST(p.snapshot_date + 1 AS timestamp) AS next_day, p.balance
+                FROM card_balance_snapshots p
+                WHERE p.card_id = c.id AND p.snapshot_date < :day
+                ORDER BY p.snapshot_date DESC
+                LIMIT 1
+            ) s ON true
+            WHERE c.id BETWEEN :lower AND :upper
+              AND c.created_at < :dayEnd
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int snapshotRange(@Param("day") LocalDate day,
+                      @Param("dayEnd") LocalDateTime dayEnd,
+                      @Param("epoch") LocalDateTime epoch,
+                      @Param("lower") UUID lower,
+                      @Param("upper") UUID upper);
+
+    /**
+     * Изменение баланса карты по переводам и пополнениям в интервале [from, to].
+     */
+    @Query(value = """
+            SELECT COALESCE((SELECT sum(amount) FROM transfers
+                             WHERE to_card_id = :cardId AND created_at >= :from AND created_at <= :to), 0)
+                 - COALESCE((SELECT sum(amount) FROM transfers
+                             WHERE from_card_id = :cardId AND created_at >= :from AND created_at <= :to), 0)
+                 + COALESCE((SELECT sum(amount) FROM card_deposits
+                             WHERE card_id = :cardId AND created_at >= :from AND created_at <= :to), 0)
+            """, nativeQuery = true)
+    BigDecimal balanceDelta(@Param("cardId") UUID cardId,
+                            @Param("from") LocalDateTime from,
+                            @Param("to") LocalDateTime to);
+
+    /**
+     * Изменение баланса карты по переводам и пополнениям в интервале (from, to), обе границы исключены.
+     */
+    @Query(value = """
+            SELECT COALESCE((SELECT sum(amount) FROM transfers
+                             WHERE to_card_id = :cardId AND created_at > :from AND created_at < :to), 0)
+                 - COALESCE((SELECT sum(amount) FROM transfers
+                             WHERE from_card_id = :cardId AND created_at > :from AND created_at < :to), 0)
+                 + COALESCE((SELECT sum(amount) FROM card_deposits
+                             WHERE card_id = :cardId AND created_at > :from AND created_at < :to), 0)
+            """, nativeQuery = true)
+    BigDecimal balanceDeltaBetween(@Param("cardId") UUID cardId,
+                                   @Param("from") LocalDateTime from,
+                                   @Param("to") LocalDateTime to);
+}
@@ -8,7 +8,11 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -18,11 +22,59 @@ public interface CardRepository extends JpaRepository<Card, UUID> {
     Optional<Card> findByIdAndUserId(UUID id, UUID userId);
     boolean existsByPanHash(String panHash);
 
+    @Query("SELECT c.id FROM Card c WHERE c.panHash = :panHash")
+    Optional<UUID> findIdByPanHash(@Param("panHash") String panHash);
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT c FROM Card c WHERE c.id = :id")
     Optional<Card> findByIdForUpdate(@Param("id") UUID id);
 
     @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("SELECT c FROM Card c WHERE c.id in (:id1, :id2)")
+    @Query("SELECT c FROM Card c WHERE c.id in (:id1, :id2) ORDER BY c.id")
     List<Card> findBothByIdForUpdate(@Param("id1") UUID id1, @Param("id2") UUID id2);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id in :ids ORDER BY c.id")
+    List<Card> findAllByIdForUpdate(@Param("ids") Collection<UUID> ids);
+
+    @Query(value = "SELECT set_config('lock_timeout', :timeout, true)", nativeQuery = true)
+    String setLocalLockTimeout(@Param("timeout") String timeout);
+
+    @Transactional
+    @Query(value = """
+            WITH locked AS (
+                SELECT id FROM cards WHERE id IN (:fromId, :toId) ORDER BY id FOR NO KEY UPDATE
+            ), debit AS (
+                UPDATE cards SET balance = balance - :amount, updated_at = :now, version = version + 1
+                WHERE id = :fromId AND user_id = :userId AND status = 'ACTIVE'
+                  AND balance >= :amount AND exp_year * 12 + exp_month >= :minExpiry
+                  AND (SELECT count(*) FROM locked) = 2
+                RETURNING id
+            ), credit AS (
+                UPDATE cards SET balance = balance + :amount, updated_at = :now, version = version + 1
+                WHERE id = :toId AND (CAST(:anyDestination AS boolean) OR user_id = :userId) AND status = 'ACTIVE'
+                  AND exp_year * 12 + exp_month >= :minExpiry
+                  AND EXISTS (SELECT 1 FROM debit)
+                RETURNING id
+            ), ledger AS (
+                INSERT INTO transfers (id, from_card_id, to_card_id, amount, created_at, idempotency_key)
+                SELECT CAST(:transferId AS uuid), :fromId, :toId, :amount, :now, CAST(:idempotencyKey AS varchar)
+                WHERE EXISTS (SELECT 1 FROM credit)
+                RETURNING id
+            ), idempotency AS (
+                INSERT INTO transfer_idempotency_keys (from_card_id, idempotency_key, transfer_id, created_at)
+                SELECT :fromId, CAST(:idempotencyKey AS varchar), CAST(:transferId AS uuid), :now
+                WHERE CAST(:idempotencyKey AS varchar) IS NOT NULL AND EXISTS (SELECT 1 FROM ledger)
+            )
+            SELECT (SELECT count(*) FROM debit) + (SELECT count(*) FROM credit) + (SELECT count(*) FROM ledger)
+            """, nativeQuery = true)
+    long transferConditionally(@Param("transferId") UUID transferId,
+                               @Param("fromId") UUID fromId,
+                               @Param("toId") UUID toId,
+                               @Param("userId") UUID userId,
+                               @Param("amount") BigDecimal amount,
+                               @Param("minExpiry") int minExpiry,
+                               @Param("now") LocalDateTime now,
+                               @Param("idempotencyKey") String idempotencyKey,
+                               @Param("anyDestination") boolean anyDestination);
 }
@@ -0,0 +1,7 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.TransferIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface TransferIdempotencyKeyRepository extends JpaRepository<TransferIdempotencyKey, TransferIdempotencyKey.Key> {
+}
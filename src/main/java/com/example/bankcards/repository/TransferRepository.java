@@ -1,12 +1,111 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Transfer;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface TransferRepository extends JpaRepository<Transfer, UUID> {
-    Page<Transfer> findByFromCardIdOrToCardId(UUID fromId, UUID toId, Pageable pageable);
+    @Query("""
+            SELECT t FROM Transfer t, TransferIdempotencyKey k
+            WHERE k.fromCardId = :fromCardId AND k.idempotencyKey = :idempotencyKey
+              AND t.id = k.transferId AND t.createdAt = k.createdAt
+            """)
+    Optional<Transfer> findByFromCardIdAndIdempotencyKey(@Param("fromCardId") UUID fromCardId,
+                                                         @Param("idempotencyKey") String idempotencyKey);
+
+    Optional<Transfer> findByIdAndCreatedAtBetween(UUID id, LocalDateTime from, LocalDateTime to);
+
+    // Карта на другой стороне перевода подтягивается по первичному ключу; её last4 отдаётся,
+    // только если она принадлежит другому клиенту, иначе NULL
+    @Query(value = """
+            (SELECT t.id, t.from_card_id AS "fromCardId", t.to_card_id AS "toCardId", t.amount, t.created_at AS "createdAt",
+                    CASE WHEN c.user_id <> o.user_id THEN c.pan_last4 END AS "counterpartyLast4"
+             FROM transfers t
+             JOIN cards o ON o.id = :cardId
+             JOIN cards c ON c.id = t.to_card_id
+             WHERE t.from_card_id = :cardId AND t.created_at >= :since
+             ORDER BY t.created_at DESC, t.id DESC
+             LIMIT :limit)
+            UNION ALL
+            (SELECT t.id, t.from_card_id, t.to_card_id, t.amount, t.created_at,
+                    CASE WHEN c.user_id <> o.user_id THEN c.pan_last4 END
+             FROM transfers t
+             JOIN cards o ON o.id = :cardId
+             JOIN cards c ON c.id = t.from_card_id
+             WHERE t.to_card_id = :cardId AND t.created_at >= :since
+             ORDER BY t.created_at DESC, t.id DESC
+             LIMIT :limit)
+            ORDER BY "createdAt" DESC, id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<TransferView> findHistory(@Param("cardId") UUID cardId,
+                                   @Param("since") LocalDateTime since,
+                                   @Param("limit") int limit);
+
+    @Query(value = """
+            (SELECT t.id, t.from_card_id AS "fromCardId", t.to_card_id AS "toCardId", t.amount, t.created_at AS "createdAt",
+                    CASE WHEN c.user_id <> o.user_id THEN c.pan_last4 END AS "counterpartyLast4"
+             FROM transfers t
+             JOIN cards o ON o.id = :cardId
+             JOIN cards c ON c.id = t.to_card_id
+             WHERE t.from_card_id = :cardId AND t.created_at >= :since AND (t.created_at, t.id) < (:createdAt, :id)
+             ORDER BY t.created_at DESC, t.id DESC
+             LIMIT :limit)
+            UNION ALL
+            (SELECT t.id, t.from_card_id, t.to_card_id, t.amount, t.created_at,
+                    CASE WHEN c.user_id <> o.user_id THEN c.pan_last4 END
+             FROM transfers t
+             JOIN cards o ON o.id = :cardId
+             JOIN cards c ON c.id = t.from_card_id
+             WHERE t.to_card_id = :cardId AND t.created_at >= :since AND (t.created_at, t.id) < (:createdAt, :id)
+             ORDER BY t.created_at DESC, t.id DESC
+             LIMIT :limit)
+            ORDER BY "createdAt" DESC, id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<TransferView> findHistoryBefore(@Param("cardId") UUID cardId,
+                                         @Param("since") LocalDateTime since,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") UUID id,
+                                         @Param("limit") int limit);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query(value = """
+            (SELECT t.id, t.from_card_id AS "fromCardId", t.to_card_id AS "toCardId", t.amount, t.created_at AS "createdAt",
+                    CASE WHEN c.user_id <> o.user_id THEN c.pan_last4 END AS "counterpartyLast4"
+             FROM transfers t
+             JOIN cards o ON o.id = :cardId
+             JOIN cards c ON c.id = t.to_card_id
+             WHERE t.from_card_id = :cardId AND t.created_at >= :since AND t.created_at < :until
+             ORDER BY t.created_at DESC, t.id DESC)
+            UNION ALL
+            (SELECT t.id, t.from_card_id, t.to_card_id, t.amount, t.created_at,
+                    CASE WHEN c.user_id <> o.user_id THEN c.pan_last4 END
+             FROM transfers t
+             JOIN cards o ON o.id = :cardId
+             JOIN cards c ON c.id = t.from_card_id
+             WHERE t.to_card_id = :cardId AND t.created_at >= :since AND t.created_at < :until
+             ORDER BY t.created_at DESC, t.id DESC)
+            ORDER BY "createdAt" DESC, id DESC
+            """, nativeQuery = true)
+    Stream<TransferView> streamHistory(@Param("cardId") UUID cardId,
+                                       @Param("since") LocalDateTime since,
+                                       @Param("until") LocalDateTime until);
 }
@@ -0,0 +1,23 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.TransferRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface TransferRequestRepository extends JpaRepository<TransferRequest, UUID> {
+    Optional<TransferRequest> findByUserIdAndIdempotencyKey(UUID userId, String idempotencyKey);
+
+    @Query(value = """
+            SELECT * FROM transfer_requests
+            WHERE status = 'PENDING'
+            ORDER BY created_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<TransferRequest> claimPending(@Param("limit") int limit);
+}
@@ -0,0 +1,25 @@
+package com.example.bankcards.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Строка истории переводов. Из карт читается только last4 карты на другой стороне перевода.
+ */
+public interface TransferView {
+    UUID getId();
+
+    UUID getFromCardId();
+
+    UUID getToCardId();
+
+    BigDecimal getAmount();
+
+    LocalDateTime getCreatedAt();
+
+    /**
+     * Последние 4 цифры карты на другой стороне перевода, если она принадлежит другому клиенту; иначе null.
+     */
+    String getCounterpartyLast4();
+}
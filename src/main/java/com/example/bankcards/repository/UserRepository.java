@@ -3,10 +3,22 @@ package com.example.bankcards.repository;
 import com.example.bankcards.entity.User;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 import java.util.UUID;
 
 public interface UserRepository extends JpaRepository<User, UUID> {
      Optional<User> findByUsername(String username);
+
+     @Query("SELECT u.tokenVersion FROM User u WHERE u.id = :id AND u.enabled = true")
+     Optional<Integer> findActiveTokenVersion(@Param("id") UUID id);
+
+     @Transactional
+     @Modifying
+     @Query("UPDATE User u SET u.passwordHash = :newHash WHERE u.id = :id AND u.passwordHash = :oldHash")
+     int updatePasswordHash(@Param("id") UUID id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
 }
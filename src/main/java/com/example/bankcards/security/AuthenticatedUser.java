@@ -0,0 +1,17 @@
+package com.example.bankcards.security;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Пользователь запроса, собранный из claims JWT без обращения к БД. tokenId и expiresAt нужны для выхода.
+ */
+public record AuthenticatedUser(UUID id, String username, String role, int tokenVersion,
+                                UUID tokenId, Instant expiresAt) implements Principal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.bankcards.security;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,19 +8,21 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserDetailsServiceImpl userDetailsService;
+    private final TokenVersionService tokenVersionService;
+    private final TokenRevocationService tokenRevocationService;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
@@ -35,22 +36,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         String token = header.substring(7);
         try {
-            Jws<Claims> parsed = jwtService.parse(token);
-            Claims claims = parsed.getPayload();
+            Claims claims = jwtService.verify(token);
 
-            String username = claims.getSubject();
+            AuthenticatedUser user = jwtService.toAuthenticatedUser(claims);
 
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            if (user != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-                if (!userDetails.isEnabled()) {
+                // Отключение и смена роли увеличивают версию, старые токены перестают действовать.
+                // Отдельный токен отзывается выходом
+                if (!tokenVersionService.isCurrent(user.id(), user.tokenVersion())
+                        || tokenRevocationService.isRevoked(user.tokenId())) {
                     SecurityContextHolder.clearContext();
                     chain.doFilter(request, response);
                     return;
                 }
 
-                var auth = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                var auth = new UsernamePasswordAuthenticationToken(user, null,
+                        List.of(new SimpleGrantedAuthority(user.role())));
 
                 SecurityContextHolder.getContext().setAuthentication(auth);
             }
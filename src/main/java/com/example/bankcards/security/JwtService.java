@@ -1,39 +1,74 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.Date;
 import java.util.List;
+import java.util.UUID;
 
 @Service
 public class JwtService {
 
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_TOKEN_VERSION = "tv";
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
     private final Key key;
     private final long ttlMillis;
+    private final JwtParser parser;
+    private final Cache<TokenDigest, Claims> verifiedTokens;
 
     public JwtService(
             @Value("${app.security.jwt-secret}") String secret,
-            @Value("${app.security.jwt-ttl-minutes}") long ttlMinutes
+            @Value("${app.security.jwt-ttl-minutes}") long ttlMinutes,
+            @Value("${app.security.jwt-cache-size}") long cacheSize
     ) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
         this.ttlMillis = ttlMinutes * 60_000;
+        // Парсер потокобезопасен, собирать его на каждый запрос незачем
+        this.parser = Jwts.parser().verifyWith((SecretKey) key).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(Expiry.<TokenDigest, Claims>creating((digest, claims) ->
+                        Duration.ofMillis(Math.max(0, claims.getExpiration().getTime() - System.currentTimeMillis()))))
+                .build();
     }
 
-    public String generateToken(String username, List<String> roles) {
+    public String generateToken(User user) {
         Date now = new Date();
         Date exp = new Date(now.getTime() + ttlMillis);
 
         return Jwts.builder()
-                .subject(username)
-                .claim("roles", roles)
+                .id(UUID.randomUUID().toString())
+                .subject(user.getUsername())
+                .claim(CLAIM_USER_ID, user.getId().toString())
+                .claim(CLAIM_ROLES, List.of(user.getRole().getName()))
+                .claim(CLAIM_TOKEN_VERSION, user.getTokenVersion())
                 .issuedAt(now)
                 .expiration(exp)
                 .signWith(key)
@@ -41,6 +76,47 @@ public class JwtService {
     }
 
     public Jws<Claims> parse(String token) {
-        return Jwts.parser().verifyWith((SecretKey) key).build().parseSignedClaims(token);
+        return parser.parseSignedClaims(token);
+    }
+
+    /**
+     * Проверяет подпись и срок токена. Проверенные claims кэшируются до истечения токена по SHA-256 от него,
+     * так что повторные запросы с тем же токеном не разбирают JSON и не считают HMAC заново.
+     * Сам токен в памяти не хранится; неверные токены не кэшируются.
+     */
+    public Claims verify(String token) {
+        TokenDigest digest = TokenDigest.of(token);
+        Claims claims = verifiedTokens.getIfPresent(digest);
+        if (claims == null) {
+            claims = parse(token).getPayload();
+            if (claims.getExpiration() != null) {
+                verifiedTokens.put(digest, claims);
+            }
+        }
+        return claims;
+    }
+
+    /**
+     * Токены, выпущенные до появления uid, tv и jti, не принимаются: вернётся null.
+     */
+    public AuthenticatedUser toAuthenticatedUser(Claims claims) {
+        String userId = claims.get(CLAIM_USER_ID, String.class);
+        Integer tokenVersion = claims.get(CLAIM_TOKEN_VERSION, Integer.class);
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
+        if (claims.getSubject() == null || userId == null || tokenVersion == null || roles == null || roles.size() != 1
+                || claims.getId() == null || claims.getExpiration() == null) {
+            return null;
+        }
+        return new AuthenticatedUser(UUID.fromString(userId), claims.getSubject(), roles.get(0).toString(), tokenVersion,
+                UUID.fromString(claims.getId()), claims.getExpiration().toInstant());
+    }
+
+    private record TokenDigest(long h0, long h1, long h2, long h3) {
+
+        static TokenDigest of(String token) {
+            MessageDigest sha256 = SHA_256.get();
+            ByteBuffer hash = ByteBuffer.wrap(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+            return new TokenDigest(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+        }
     }
-}
\ No newline at end of file
+}
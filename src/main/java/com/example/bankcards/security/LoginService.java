@@ -0,0 +1,212 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.LoginThrottledException;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Проверка пароля при входе. BCrypt считается на отдельном ограниченном пуле, чтобы всплеск логинов
+ * не занимал потоки Tomcat; при переполненной очереди запрос сразу отклоняется. Пользователь читается
+ * до постановки в очередь, а всё, что после BCrypt ходит в БД, выполняется на пуле завершения:
+ * потоки BCrypt заняты только хэшированием.
+ */
+@Slf4j
+@Service
+public class LoginService {
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final LoginThrottle loginThrottle;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+    private final ExecutorService completionExecutor;
+    private final Timer queueWait;
+    private final Timer hashSuccess;
+    private final Timer hashBadPassword;
+    private final Timer hashUnknownUser;
+    private final Counter rejected;
+    private final Counter throttled;
+    private final Counter rehashed;
+
+    // Хэш для несуществующих пользователей: ответ по времени не выдаёт, есть ли такой логин
+    private final String dummyHash;
+
+    public LoginService(
+            UserRepository userRepository,
+            PasswordEncoder passwordEncoder,
+            LoginThrottle loginThrottle,
+            MeterRegistry meterRegistry,
+            @Value("${app.security.bcrypt.strength}") int strength,
+            @Value("${app.security.login.threads}") int threads,
+            @Value("${app.security.login.queue-capacity}") int queueCapacity,
+            @Value("${app.security.login.completion-threads}") int completionThreads
+    ) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.loginThrottle = loginThrottle;
+        this.strength = strength;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                daemonThreads("login-"),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        // Очередь не ограничена: сюда попадают только запросы, уже прошедшие ограниченный пул BCrypt
+        this.completionExecutor = Executors.newFixedThreadPool(Math.max(1, completionThreads), daemonThreads("login-complete-"));
+
+        this.queueWait = Timer.builder("bank.login.queue.wait")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.hashSuccess = hashTimer(meterRegistry, "success");
+        this.hashBadPassword = hashTimer(meterRegistry, "bad_password");
+        this.hashUnknownUser = hashTimer(meterRegistry, "unknown_user");
+        this.rejected = Counter.builder("bank.login.rejected").register(meterRegistry);
+        this.throttled = Counter.builder("bank.login.throttled").register(meterRegistry);
+        this.rehashed = Counter.builder("bank.login.rehash").register(meterRegistry);
+        this.dummyHash = passwordEncoder.encode("dummy-password");
+    }
+
+    /**
+     * Проверяет логин и пароль. После серии ошибок по логину или IP бросает {@link LoginThrottledException},
+     * если пул занят, бросает {@link RejectedExecutionException}; оба случая сразу и без BCrypt.
+     * Ошибки аутентификации приходят через future, который завершается на {@link #completionExecutor()}.
+     */
+    public CompletableFuture<User> authenticate(String username, String password, String clientIp) {
+        long waitMillis = loginThrottle.check(username, clientIp);
+        if (waitMillis > 0) {
+            throttled.increment();
+            throw new LoginThrottledException(waitMillis);
+        }
+
+        Optional<User> found = userRepository.findByUsername(username);
+
+        long submittedAt = System.nanoTime();
+        try {
+            return CompletableFuture
+                    .supplyAsync(() -> {
+                        queueWait.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                        return verify(found, password);
+                    }, executor)
+                    .thenApplyAsync(verification -> complete(verification, username, clientIp), completionExecutor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("Login rejected: verification queue is full");
+            throw e;
+        }
+    }
+
+    /**
+     * Пул для работы после проверки пароля: выдача токенов и запись в БД не должны занимать потоки BCrypt.
+     */
+    public Executor completionExecutor() {
+        return completionExecutor;
+    }
+
+    // Выполняется на пуле BCrypt: только хэширование, без обращений к БД
+    Verification verify(Optional<User> found, String password) {
+        String hash = found.map(User::getPasswordHash).orElse(dummyHash);
+
+        long start = System.nanoTime();
+        boolean matches = passwordEncoder.matches(password, hash);
+        Timer timer = found.isEmpty() ? hashUnknownUser : matches ? hashSuccess : hashBadPassword;
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (found.isEmpty() || !matches) {
+            return new Verification(null, null);
+        }
+        User user = found.get();
+        String newHash = user.isEnabled() && needsRehash(hash) ? passwordEncoder.encode(password) : null;
+        return new Verification(user, newHash);
+    }
+
+    private User complete(Verification verification, String username, String clientIp) {
+        User user = verification.user();
+        if (user == null) {
+            loginThrottle.onFailure(username, clientIp);
+            throw new BadCredentialsException("Bad credentials");
+        }
+        if (!user.isEnabled()) {
+            throw new DisabledException("User is disabled");
+        }
+        loginThrottle.onSuccess(username);
+
+        if (verification.newHash() != null) {
+            rehash(user, verification.newHash());
+        }
+        return user;
+    }
+
+    boolean needsRehash(String hash) {
+        Matcher m = BCRYPT_COST.matcher(hash);
+        return !m.find() || Integer.parseInt(m.group(1)) != strength;
+    }
+
+    private void rehash(User user, String newHash) {
+        String oldHash = user.getPasswordHash();
+        try {
+            // Условие по старому хэшу: параллельная смена пароля не перетирается
+            if (userRepository.updatePasswordHash(user.getId(), oldHash, newHash) > 0) {
+                user.setPasswordHash(newHash);
+                rehashed.increment();
+                log.info("Password rehashed with cost {}: userId={}", strength, user.getId());
+            }
+        } catch (RuntimeException e) {
+            // Вход уже успешен, перехэшируем при следующем
+            log.warn("Password rehash failed: userId={}", user.getId(), e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+        completionExecutor.shutdown();
+    }
+
+    private static Timer hashTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("bank.login.hash")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    // Итог проверки на пуле BCrypt: user == null при неверном логине или пароле
+    record Verification(User user, String newHash) {
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.bankcards.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Счётчики неудачных входов по логину и по IP. Проверка идёт до BCrypt, так что отклонённая попытка
+ * стоит микросекунды. Ключи раскладываются по полосам фиксированного массива без блокировок и без
+ * аллокаций на запрос; в ячейке упакованы число ошибок (младшие 32 бита) и время последней ошибки
+ * в тиках по 100 мс (старшие 32 бита). Число ошибок вдвое уменьшается за каждый период полураспада.
+ * Ключи, попавшие в одну полосу, делят счётчик, поэтому хэш засеян случайно на каждый запуск.
+ */
+@Component
+public class LoginThrottle {
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long TICK_MILLIS = 100;
+    private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+    private final boolean enabled;
+    private final AtomicLongArray users;
+    private final AtomicLongArray ips;
+    private final int mask;
+    private final int seed = new SecureRandom().nextInt();
+    private final long origin = System.nanoTime();
+    private final Policy userPolicy;
+    private final Policy ipPolicy;
+    private final long halfLifeTicks;
+
+    public LoginThrottle(
+            @Value("${app.security.login.throttle.enabled}") boolean enabled,
+            @Value("${app.security.login.throttle.stripes}") int stripes,
+            @Value("${app.security.login.throttle.user-free-attempts}") int userFreeAttempts,
+            @Value("${app.security.login.throttle.ip-free-attempts}") int ipFreeAttempts,
+            @Value("${app.security.login.throttle.lockout-after}") int lockoutAfter,
+            @Value("${app.security.login.throttle.base-delay-ms}") long baseDelayMillis,
+            @Value("${app.security.login.throttle.lockout-seconds}") long lockoutSeconds,
+            @Value("${app.security.login.throttle.half-life-seconds}") long halfLifeSeconds
+    ) {
+        if (stripes < 1 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Login throttle stripes must be a power of two");
+        }
+        this.enabled = enabled;
+        this.users = new AtomicLongArray(stripes);
+        this.ips = new AtomicLongArray(stripes);
+        this.mask = stripes - 1;
+        long lockoutTicks = TimeUnit.SECONDS.toMillis(lockoutSeconds) / TICK_MILLIS;
+        this.userPolicy = new Policy(userFreeAttempts, lockoutAfter, Math.max(1, baseDelayMillis / TICK_MILLIS), lockoutTicks);
+        this.ipPolicy = new Policy(ipFreeAttempts, lockoutAfter, Math.max(1, baseDelayMillis / TICK_MILLIS), lockoutTicks);
+        this.halfLifeTicks = Math.max(1, TimeUnit.SECONDS.toMillis(halfLifeSeconds) / TICK_MILLIS);
+    }
+
+    /**
+     * Сколько миллисекунд ждать до следующей попытки; 0, если попытку можно проверять.
+     */
+    public long check(String username, String ip) {
+        return enabled ? check(username, ip, now()) : 0;
+    }
+
+    long check(String username, String ip, long now) {
+        long wait = Math.max(
+                waitTicks(users.get(index(username)), userPolicy, now),
+                waitTicks(ips.get(index(ip)), ipPolicy, now));
+        return wait * TICK_MILLIS;
+    }
+
+    public void onFailure(String username, String ip) {
+        if (enabled) {
+            onFailure(username, ip, now());
+        }
+    }
+
+    void onFailure(String username, String ip, long now) {
+        increment(users, index(username), now);
+        increment(ips, index(ip), now);
+    }
+
+    /**
+     * Успешный вход сбрасывает счётчик логина. Счётчик IP не трогаем: иначе своя учётная запись
+     * позволяла бы перебирать чужие с того же адреса.
+     */
+    public void onSuccess(String username) {
+        if (enabled) {
+            users.set(index(username), 0);
+        }
+    }
+
+    long waitTicks(long slot, Policy policy, long now) {
+        long count = decayed(slot, now);
+        if (count < policy.freeAttempts()) {
+            return 0;
+        }
+        long excess = count - policy.freeAttempts();
+        long delay = excess >= policy.lockoutAfter()
+                ? policy.lockoutTicks()
+                : Math.min(policy.lockoutTicks(), policy.baseDelayTicks() << Math.min(excess, 30));
+        return Math.max(0, delay - elapsed(slot, now));
+    }
+
+    private void increment(AtomicLongArray slots, int index, long now) {
+        while (true) {
+            long slot = slots.get(index);
+            long count = Math.min(decayed(slot, now) + 1, COUNT_MASK);
+            if (slots.compareAndSet(index, slot, pack(now, count))) {
+                return;
+            }
+        }
+    }
+
+    long decayed(long slot, long now) {
+        long count = slot & COUNT_MASK;
+        if (count == 0) {
+            return 0;
+        }
+        long halvings = elapsed(slot, now) / halfLifeTicks;
+        return halvings >= Integer.SIZE ? 0 : count >>> halvings;
+    }
+
+    private static long elapsed(long slot, long now) {
+        return (now - (slot >>> Integer.SIZE)) & COUNT_MASK;
+    }
+
+    static long pack(long tick, long count) {
+        return (tick << Integer.SIZE) | count;
+    }
+
+    // Тики без знака в 32 битах: переполнение через ~13 лет непрерывной работы
+    long now() {
+        return ((System.nanoTime() - origin) / TICK_NANOS) & COUNT_MASK;
+    }
+
+    // FNV-1a со случайным начальным значением: подобрать коллизию с чужим логином заранее нельзя
+    int index(String key) {
+        int h = 0x811C9DC5 ^ seed;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        return h & mask;
+    }
+
+    record Policy(int freeAttempts, int lockoutAfter, long baseDelayTicks, long lockoutTicks) {
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.RateLimitProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничение частоты запросов по пользователю. Стоит после JwtAuthenticationFilter, чтобы знать имя пользователя.
+ * Ведро токенов реализовано как GCRA: на ключ хранится одно время theoretical arrival time в AtomicLong.
+ */
+@Slf4j
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimitProperties properties;
+    private final ObjectMapper objectMapper;
+    private final List<Group> groups = new ArrayList<>();
+    private final Cache<Key, AtomicLong> buckets;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public RateLimitFilter(RateLimitProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .expireAfterAccess(Duration.ofMinutes(properties.getIdleMinutes()))
+                .build();
+
+        for (Map.Entry<String, RateLimitProperties.Group> entry : properties.getGroups().entrySet()) {
+            RateLimitProperties.Group config = entry.getValue();
+            if (config.getCapacity() < 1 || config.getRefillPerSecond() <= 0) {
+                throw new IllegalArgumentException("Rate limit group " + entry.getKey() + " needs positive capacity and refill");
+            }
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / config.getRefillPerSecond());
+            groups.add(new Group(entry.getKey(), config, interval, interval * config.getCapacity(),
+                    Counter.builder("bank.ratelimit.rejected")
+                            .tag("group", entry.getKey())
+                            .register(meterRegistry)));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Group group = properties.isEnabled() && authentication != null ? match(request) : null;
+        if (group == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long waitNanos = acquire(new Key(authentication.getName(), group.name()), group, System.nanoTime());
+        if (waitNanos > 0) {
+            reject(response, group, waitNanos);
+            log.debug("Rate limit {} exceeded by {}", group.name(), authentication.getName());
+            return;
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * Возвращает 0, если запрос разрешён, иначе сколько наносекунд ждать до следующего разрешённого запроса.
+     */
+    long acquire(Key key, Group group, long now) {
+        AtomicLong tat = buckets.get(key, k -> new AtomicLong(now));
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + group.interval();
+            long wait = next - now - group.burst();
+            if (wait > 0) {
+                return wait;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    Group match(HttpServletRequest request) {
+        String path = request.getServletPath();
+        for (Group group : groups) {
+            List<String> methods = group.config().getMethods();
+            if (!methods.isEmpty() && !methods.contains(request.getMethod())) {
+                continue;
+            }
+            for (String pattern : group.config().getPaths()) {
+                if (pathMatcher.match(pattern, path)) {
+                    return group;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void reject(HttpServletResponse response, Group group, long waitNanos) throws IOException {
+        group.rejected().increment();
+
+        long retryAfter = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of(
+                "error", "TOO_MANY_REQUESTS",
+                "message", "Rate limit exceeded for " + group.name() + ", retry later"
+        ));
+    }
+
+    record Key(String username, String group) {
+    }
+
+    record Group(String name, RateLimitProperties.Group config, long interval, long burst, Counter rejected) {
+    }
+}
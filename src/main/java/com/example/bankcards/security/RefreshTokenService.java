@@ -0,0 +1,141 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Выдача и ротация refresh-токенов. Обновление access-токена стоит одного поиска по индексу
+ * token_hash, без BCrypt. Каждый токен одноразовый: при ротации выдаётся следующий в той же цепочке.
+ */
+@Slf4j
+@Service
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+    private static final SecureRandom random = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final Duration ttl;
+
+    public RefreshTokenService(
+            RefreshTokenRepository refreshTokenRepository,
+            @Value("${app.security.refresh-token.ttl-days}") long ttlDays
+    ) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.ttl = Duration.ofDays(ttlDays);
+    }
+
+    public record Rotation(User user, String refreshToken) {
+    }
+
+    /**
+     * Начинает новую цепочку при входе по паролю.
+     */
+    @Transactional
+    public String issue(User user) {
+        return create(user, UUID.randomUUID());
+    }
+
+    /**
+     * Меняет refresh-токен на следующий. Повторное предъявление уже заменённого токена означает,
+     * что он утёк: отзывается вся цепочка, включая токен, выданный взамен.
+     */
+    @Transactional(noRollbackFor = AuthenticationException.class)
+    public Rotation rotate(String rawToken) {
+        RefreshToken token = refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new BadCredentialsException("Unknown refresh token"));
+
+        if (token.isRevoked() || token.getRotatedAt() != null) {
+            revokeFamily(token);
+            throw new BadCredentialsException("Refresh token reuse detected");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (!token.getExpiresAt().isAfter(now)) {
+            throw new BadCredentialsException("Refresh token expired");
+        }
+
+        User user = token.getUser();
+        if (!user.isEnabled()) {
+            throw new DisabledException("User is disabled");
+        }
+
+        // Два параллельных запроса с одним токеном: второй не пройдёт условный UPDATE
+        if (refreshTokenRepository.markRotated(token.getId(), now) == 0) {
+            revokeFamily(token);
+            throw new BadCredentialsException("Refresh token reuse detected");
+        }
+
+        return new Rotation(user, create(user, token.getFamilyId()));
+    }
+
+    /**
+     * Выход: отзывает цепочку, к которой относится токен. Неизвестный токен молча игнорируется.
+     */
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId()));
+    }
+
+    @Scheduled(cron = "${app.security.refresh-token.cleanup-cron}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Expired refresh tokens deleted: {}", deleted);
+        }
+    }
+
+    private String create(User user, UUID familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String rawToken = ENCODER.encodeToString(bytes);
+
+        RefreshToken token = new RefreshToken();
+        token.setUser(user);
+        token.setFamilyId(familyId);
+        token.setTokenHash(hash(rawToken));
+        token.setCreatedAt(LocalDateTime.now());
+        token.setExpiresAt(token.getCreatedAt().plus(ttl));
+        refreshTokenRepository.save(token);
+
+        return rawToken;
+    }
+
+    private void revokeFamily(RefreshToken token) {
+        int revoked = refreshTokenRepository.revokeFamily(token.getFamilyId());
+        log.warn("Refresh token family revoked: userId={}, familyId={}, tokens={}",
+                token.getUser().getId(), token.getFamilyId(), revoked);
+    }
+
+    // Токен случайный и длинный, поэтому достаточно SHA-256 без соли
+    static String hash(String rawToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
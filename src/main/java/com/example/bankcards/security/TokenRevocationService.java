@@ -0,0 +1,147 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Отзыв JWT по jti. Перед таблицей revoked_tokens стоит фильтр Блума в памяти: для неотозванного токена,
+ * то есть почти всегда, ответ даётся без запроса к БД, в таблицу идут только срабатывания фильтра.
+ * Фильтр собирается из таблицы при старте и после очистки, а отзывы с других узлов подтягиваются
+ * каждые sync-ms.
+ */
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+    // Перекрытие окна синхронизации: часы узла и БД могут расходиться
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long expectedTokens;
+    private final double falsePositiveRate;
+    private final Counter bloomHits;
+    private final Counter falsePositives;
+
+    private volatile BloomFilter filter;
+    // Пока идёт пересборка, новые отзывы пишутся и в старый, и в собираемый фильтр
+    private volatile BloomFilter building;
+    private volatile LocalDateTime lastSync = LocalDateTime.now();
+
+    public TokenRevocationService(
+            RevokedTokenRepository revokedTokenRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.security.revocation.expected-tokens}") long expectedTokens,
+            @Value("${app.security.revocation.false-positive-rate}") double falsePositiveRate
+    ) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedTokens = expectedTokens;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(expectedTokens, falsePositiveRate);
+        this.bloomHits = Counter.builder("bank.revocation.bloom.hit").register(meterRegistry);
+        this.falsePositives = Counter.builder("bank.revocation.bloom.false_positive").register(meterRegistry);
+    }
+
+    public boolean isRevoked(UUID jti) {
+        if (!filter.mightContain(jti)) {
+            return false;
+        }
+        bloomHits.increment();
+        boolean revoked = revokedTokenRepository.existsById(jti);
+        if (!revoked) {
+            falsePositives.increment();
+        }
+        return revoked;
+    }
+
+    /**
+     * Отзывает токен до его истечения. В фильтр jti попадает после коммита: пересборка, начатая раньше,
+     * либо увидит строку в таблице, либо получит jti напрямую.
+     */
+    @Transactional
+    public void revoke(UUID jti, LocalDateTime expiresAt) {
+        revokedTokenRepository.revoke(jti, expiresAt);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(jti);
+                }
+            });
+        } else {
+            add(jti);
+        }
+    }
+
+    @Transactional
+    public void revoke(AuthenticatedUser user) {
+        revoke(user.tokenId(), LocalDateTime.ofInstant(user.expiresAt(), ZoneId.systemDefault()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+
+        BloomFilter next = new BloomFilter(expectedTokens, falsePositiveRate);
+        building = next;
+        try {
+            List<UUID> jtis = revokedTokenRepository.findActiveJtis(now);
+            jtis.forEach(next::add);
+            filter = next;
+            lastSync = now;
+            log.info("Revoked token filter rebuilt with {} tokens in {} ms",
+                    jtis.size(), (System.nanoTime() - started) / 1_000_000);
+        } finally {
+            building = null;
+        }
+    }
+
+    /**
+     * Подтягивает отзывы, сделанные на других узлах.
+     */
+    @Scheduled(fixedDelayString = "${app.security.revocation.sync-ms}")
+    public void sync() {
+        LocalDateTime now = LocalDateTime.now();
+        List<UUID> jtis = revokedTokenRepository.findJtisRevokedSince(lastSync.minus(SYNC_OVERLAP), now);
+        jtis.forEach(this::add);
+        lastSync = now;
+    }
+
+    /**
+     * Строки живут до истечения токена. Удалённые jti остаются битами в фильтре, поэтому после очистки
+     * он собирается заново.
+     */
+    @Scheduled(cron = "${app.security.revocation.cleanup-cron}")
+    @Transactional
+    public void cleanup() {
+        int deleted = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Expired revoked tokens deleted: {}", deleted);
+        }
+        rebuild();
+    }
+
+    private void add(UUID jti) {
+        filter.add(jti);
+        BloomFilter next = building;
+        if (next != null) {
+            next.add(jti);
+        }
+    }
+}
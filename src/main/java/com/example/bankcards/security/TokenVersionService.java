@@ -0,0 +1,68 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Текущие версии токенов пользователей. БД читается только при промахе кэша, так что проверка
+ * отзыва не добавляет запроса к каждому вызову API. На других узлах отзыв виден не позже TTL.
+ */
+@Service
+public class TokenVersionService {
+
+    // Отключённый пользователь: ни одна версия токена не совпадёт
+    private static final int DISABLED = -1;
+
+    private final UserRepository userRepository;
+    private final Cache<UUID, Integer> versions;
+
+    public TokenVersionService(
+            UserRepository userRepository,
+            @Value("${app.security.token-version-cache.size}") long cacheSize,
+            @Value("${app.security.token-version-cache.ttl-seconds}") long cacheTtlSeconds
+    ) {
+        this.userRepository = userRepository;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .build();
+    }
+
+    public boolean isCurrent(UUID userId, int tokenVersion) {
+        int current = versions.get(userId, id -> userRepository.findActiveTokenVersion(id).orElse(DISABLED));
+        return current != DISABLED && current == tokenVersion;
+    }
+
+    /**
+     * Отзывает все выданные пользователю токены. Вызывается внутри транзакции, которая сохраняет пользователя.
+     */
+    public void revokeAll(User user) {
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        evict(user.getId());
+    }
+
+    /**
+     * Сбрасывает запись сразу и ещё раз после завершения транзакции, чтобы параллельный запрос
+     * не закэшировал версию, прочитанную до коммита.
+     */
+    public void evict(UUID userId) {
+        versions.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    versions.invalidate(userId);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.bankcards.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BalanceSnapshotJob {
+
+    private final BalanceSnapshotService balanceSnapshotService;
+
+    // Только ставит задачу: снятие идёт на своём потоке и не занимает поток планировщика
+    @Scheduled(cron = "${app.balance-snapshot.cron}")
+    public void snapshotYesterday() {
+        try {
+            balanceSnapshotService.startSnapshot(LocalDate.now().minusDays(1));
+        } catch (RuntimeException e) {
+            log.error("Daily balance snapshot could not be started", e);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BalanceAtDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardBalanceSnapshot;
+import com.example.bankcards.repository.CardBalanceSnapshotRepository;
+import com.example.bankcards.util.UuidRange;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@Slf4j
+public class BalanceSnapshotService {
+
+    /**
+     * Нижняя граница, если у карты ещё нет снимков: карты создаются с нулевым балансом, а баланс карт,
+     * существовавших до журналов, заведён начальным пополнением (миграция 009-card-opening-balances).
+     * Годится, пока журнал переводов полный; после отсоединения старых секций баланс считается от снимков.
+     */
+    static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final CardBalanceSnapshotRepository snapshotRepository;
+    private final CardService cardService;
+    private final TransferPartitionService transferPartitionService;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunks;
+    private final int parallelism;
+
+    // И ручные, и ночные запуски идут на своём потоке по очереди: 256 чанков не держат ни HTTP-поток,
+    // ни единственный поток планировщика, на котором крутятся очередь переводов и outbox
+    private final ExecutorService runs = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "balance-snapshot");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean manualRunning = new AtomicBoolean();
+
+    public BalanceSnapshotService(CardBalanceSnapshotRepository snapshotRepository,
+                                  CardService cardService,
+                                  TransferPartitionService transferPartitionService,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.balance-snapshot.chunks}") int chunks,
+                                  @Value("${app.balance-snapshot.parallelism}") int parallelism) {
+        this.snapshotRepository = snapshotRepository;
+        this.cardService = cardService;
+        this.transferPartitionService = transferPartitionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunks = chunks;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Ручной запуск снятия балансов за день. Проверяет день и возвращается сразу, сам запуск идёт в фоне;
+     * результат пишется в лог и в balance_snapshot_chunks.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public void snapshotDay(LocalDate day) {
+
+        requireFinishedDay(day);
+
+        if (!manualRunning.compareAndSet(false, true)) {
+            throw new IllegalStateException("Balance snapshot is already running");
+        }
+        try {
+            runs.execute(() -> {
+                try {
+                    runSnapshot(day);
+                } catch (RuntimeException e) {
+                    log.error("Manual balance snapshot for {} failed", day, e);
+                } finally {
+                    manualRunning.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            manualRunning.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Ставит снятие балансов за день в очередь фонового потока и сразу возвращается. Для запуска по расписанию.
+     */
+    public void startSnapshot(LocalDate day) {
+        runs.execute(() -> {
+            try {
+                runSnapshot(day);
+            } catch (RuntimeException e) {
+                log.error("Balance snapshot for {} failed", day, e);
+            }
+        });
+    }
+
+    /**
+     * Снимает балансы всех карт на конец дня. Каждый чанк пишется в своей транзакции вместе с отметкой
+     * в balance_snapshot_chunks, поэтому после падения повторный запуск доделывает только оставшиеся чанки.
+     */
+    public long runSnapshot(LocalDate day) {
+
+        requireFinishedDay(day);
+
+        List<UuidRange> ranges = UuidRange.split(chunks);
+        if (snapshotRepository.countFinishedChunks(day) >= ranges.size()) {
+            log.info("Balance snapshot for {} is already complete", day);
+            return 0;
+        }
+
+        LocalDateTime dayEnd = day.plusDays(1).atStartOfDay();
+        AtomicLong cards = new AtomicLong();
+        long started = System.nanoTime();
+
+        log.info("Balance snapshot for {} started: {} chunks, parallelism {}", day, ranges.size(), parallelism);
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> futures = new ArrayList<>(ranges.size());
+            for (int i = 0; i < ranges.size(); i++) {
+                int chunkNo = i;
+                UuidRange range = ranges.get(i);
+                futures.add(executor.submit(() -> cards.addAndGet(snapshotChunk(day, dayEnd, chunkNo, range))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Balance snapshot for " + day + " was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Balance snapshot for " + day + " failed, rerun to resume", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.info("Balance snapshot for {} finished: {} cards in {} ms",
+                day, cards.get(), (System.nanoTime() - started) / 1_000_000);
+
+        return cards.get();
+    }
+
+    private static void requireFinishedDay(LocalDate day) {
+        if (!day.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Snapshot can be taken only for a finished day");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        runs.shutdownNow();
+    }
+
+    private long snapshotChunk(LocalDate day, LocalDateTime dayEnd, int chunkNo, UuidRange range) {
+        Long count = transactionTemplate.execute(status -> {
+            if (snapshotRepository.claimChunk(day, chunkNo) == 0) {
+                return 0L;
+            }
+            long inserted = snapshotRepository.snapshotRange(day, dayEnd, EPOCH, range.lower(), range.upper());
+            snapshotRepository.finishChunk(day, chunkNo, inserted);
+            return inserted;
+        });
+        return count == null ? 0 : count;
+    }
+
+    @Transactional(readOnly = true)
+    public BalanceAtDto getBalanceAt(UUID cardId, LocalDateTime at, String username) {
+
+        if (at == null) {
+            throw new IllegalArgumentException("Point in time cannot be null");
+        }
+
+        Card card = cardService.getCardById(cardId, username);
+
+        // Снимок за день D — баланс на начало дня D+1, он годится для любого момента не раньше этого
+        Optional<CardBalanceSnapshot> snapshot = snapshotRepository
+                .findFirstByCardIdAndSnapshotDateLessThanOrderBySnapshotDateDesc(cardId, at.toLocalDate());
+
+        LocalDateTime from = snapshot.map(s -> s.getSnapshotDate().plusDays(1).atStartOfDay()).orElse(EPOCH);
+
+        // Начало окна ушло в отсоединённые секции transfers: считаем назад от ближайшего снимка после момента
+        LocalDateTime historyStart = transferPartitionService.historyStart();
+        if (historyStart != null && from.isBefore(historyStart) && card.getCreatedAt().isBefore(historyStart)) {
+            return balanceBefore(cardId, at, historyStart);
+        }
+
+        BigDecimal base = snapshot.map(CardBalanceSnapshot::getBalance).orElse(BigDecimal.ZERO);
+        BigDecimal balance = base.add(snapshotRepository.balanceDelta(cardId, from, at));
+
+        return new BalanceAtDto(cardId, at, balance, snapshot.map(CardBalanceSnapshot::getSnapshotDate).orElse(null));
+    }
+
+    private BalanceAtDto balanceBefore(UUID cardId, LocalDateTime at, LocalDateTime historyStart) {
+
+        if (at.isBefore(historyStart)) {
+            throw new IllegalArgumentException("Balance history before " + historyStart + " is archived");
+        }
+
+        CardBalanceSnapshot snapshot = snapshotRepository
+                .findFirstByCardIdAndSnapshotDateGreaterThanEqualOrderBySnapshotDateAsc(cardId, at.toLocalDate())
+                .orElseThrow(() -> new IllegalStateException(
+                        "No balance snapshot covers " + at + ", transfers before " + historyStart + " are archived"));
+
+        LocalDateTime snapshotAt = snapshot.getSnapshotDate().plusDays(1).atStartOfDay();
+        BigDecimal balance = snapshot.getBalance().subtract(snapshotRepository.balanceDeltaBetween(cardId, at, snapshotAt));
+
+        return new BalanceAtDto(cardId, at, balance, snapshot.getSnapshotDate());
+    }
+}
@@ -2,11 +2,10 @@ package com.example.bankcards.service;
 
 import com.example.bankcards.entity.BlockRequest;
 import com.example.bankcards.entity.Card;
-import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.ResourceNotFoundException;
 import com.example.bankcards.repository.BlockRequestRepository;
 import com.example.bankcards.repository.CardRepository;
-import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.AuthenticatedUser;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -14,6 +13,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -26,19 +26,16 @@ public class BlockRequestService {
 
     private final BlockRequestRepository blockRequestRepository;
     private final CardRepository cardRepository;
-    private final UserRepository userRepository;
     private final CardService cardService;
+    private final OutboxService outboxService;
 
     @Transactional
-    public BlockRequest createRequest(UUID cardId, String username, String comment) {
-
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
+    public BlockRequest createRequest(UUID cardId, AuthenticatedUser user, String comment) {
 
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new ResourceNotFoundException("Card not found: " + cardId));
 
-        if (!card.getUser().getId().equals(user.getId())) {
+        if (!card.getUser().getId().equals(user.id())) {
             throw new AccessDeniedException("You can request block only for your own card");
         }
 
@@ -71,7 +68,11 @@ public class BlockRequestService {
         req.setStatus(STATUS_APPROVED);
         req.setComment(comment);
 
-        return blockRequestRepository.save(req);
+        BlockRequest saved = blockRequestRepository.save(req);
+        outboxService.record(OutboxService.AGGREGATE_BLOCK_REQUEST, saved.getId(), OutboxService.BLOCK_REQUEST_APPROVED,
+                Map.of("requestId", saved.getId(), "cardId", saved.getCard().getId(), "status", saved.getStatus()));
+
+        return saved;
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -88,6 +89,10 @@ public class BlockRequestService {
         req.setStatus(STATUS_REJECTED);
         req.setComment(comment);
 
-        return blockRequestRepository.save(req);
+        BlockRequest saved = blockRequestRepository.save(req);
+        outboxService.record(OutboxService.AGGREGATE_BLOCK_REQUEST, saved.getId(), OutboxService.BLOCK_REQUEST_REJECTED,
+                Map.of("requestId", saved.getId(), "cardId", saved.getCard().getId(), "status", saved.getStatus()));
+
+        return saved;
     }
 }
\ No newline at end of file
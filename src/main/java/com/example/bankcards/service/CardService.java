@@ -1,13 +1,17 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardDeposit;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.repository.CardDepositRepository;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.AuthenticatedUser;
 import com.example.bankcards.util.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.AccessDeniedException;
@@ -17,6 +21,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
 @Slf4j
@@ -24,15 +29,23 @@ import java.util.UUID;
 @Service
 public class CardService {
     private final CardRepository cardRepository;
+    private final CardDepositRepository cardDepositRepository;
     private final UserRepository userRepository;
     private final CardNumberGenerator cardNumberGenerator;
     private final CardEncryptionUtil cardEncryptionUtil;
     private final CardMaskingUtil cardMaskingUtil;
     private final ValidationUtil validationUtil;
+    private final OutboxService outboxService;
+    private final PanResolver panResolver;
 
     private static final String STATUS_ACTIVE = "ACTIVE";
     private static final String STATUS_BLOCKED = "BLOCKED";
 
+    public static final String LOCK_OPERATION = "card";
+
+    @Value("${app.transfer.mode}")
+    private TransferMode mode = TransferMode.PESSIMISTIC;
+
     @PreAuthorize("hasRole('ADMIN')")
     @Transactional
     public Card createCard(UUID userId, String ownerName) {
@@ -70,7 +83,7 @@ public class CardService {
         card.setExpMonth(expMonth);
         card.setExpYear(expYear);
         card.setStatus(STATUS_ACTIVE);
-        card.setBalance(BigDecimal.ZERO);
+        card.setBalance(Money.ZERO);
         card.setCreatedAt(LocalDateTime.now());
         card.setUpdatedAt(LocalDateTime.now());
 
@@ -97,18 +110,20 @@ public class CardService {
     }
 
     @Transactional(readOnly = true)
-    public Page<Card> getUserCards(UUID userId, String username, Pageable pageable) {
+    public Page<Card> getUserCards(UUID userId, AuthenticatedUser user, Pageable pageable) {
         log.debug("Fetching cards for user ID: {}", userId);
 
         if (userId == null) {
             throw new IllegalArgumentException("User ID cannot be null");
         }
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
-
-        if (!user.getUsername().equals(username) && !SecurityUtil.isAdmin()) {
-            throw new AccessDeniedException("You can only view your own cards");
+        if (!userId.equals(user.id())) {
+            if (!SecurityUtil.isAdmin()) {
+                throw new AccessDeniedException("You can only view your own cards");
+            }
+            if (!userRepository.existsById(userId)) {
+                throw new ResourceNotFoundException("User not found with id: " + userId);
+            }
         }
 
         return cardRepository.findByUserId(userId, pageable);
@@ -129,8 +144,7 @@ public class CardService {
             throw new IllegalArgumentException("Card ID cannot be null");
         }
 
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new ResourceNotFoundException("Card not found with id: " + cardId));
+        Card card = findForUpdate(cardId);
 
         if (STATUS_BLOCKED.equals(card.getStatus())) {
             throw new IllegalStateException("Card is already blocked");
@@ -140,6 +154,8 @@ public class CardService {
         card.setUpdatedAt(LocalDateTime.now());
 
         Card updatedCard = cardRepository.save(card);
+        outboxService.record(OutboxService.AGGREGATE_CARD, cardId, OutboxService.CARD_BLOCKED,
+                Map.of("cardId", cardId, "status", card.getStatus(), "updatedAt", card.getUpdatedAt()));
         log.info("Card blocked successfully: {}", cardId);
 
         return updatedCard;
@@ -154,8 +170,7 @@ public class CardService {
             throw new IllegalArgumentException("Card ID cannot be null");
         }
 
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new ResourceNotFoundException("Card not found with id: " + cardId));
+        Card card = findForUpdate(cardId);
 
         if (STATUS_ACTIVE.equals(card.getStatus())) {
             throw new IllegalStateException("Card is already active");
@@ -169,6 +184,8 @@ public class CardService {
         card.setUpdatedAt(LocalDateTime.now());
 
         Card updatedCard = cardRepository.save(card);
+        outboxService.record(OutboxService.AGGREGATE_CARD, cardId, OutboxService.CARD_UNBLOCKED,
+                Map.of("cardId", cardId, "status", card.getStatus(), "updatedAt", card.getUpdatedAt()));
         log.info("Card unblocked successfully: {}", cardId);
 
         return updatedCard;
@@ -186,15 +203,16 @@ public class CardService {
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new ResourceNotFoundException("Card not found with id: " + cardId));
 
-        if (card.getBalance().compareTo(BigDecimal.ZERO) > 0) {
+        if (card.getBalance().isPositive()) {
             throw new IllegalStateException("Cannot delete card with non-zero balance");
         }
 
         cardRepository.delete(card);
+        panResolver.evict(card.getPanHash());
         log.info("Card deleted successfully: {}", cardId);
     }
 
-    private Card updateBalance(Card card, BigDecimal amount) {
+    private Card updateBalance(Card card, Money amount) {
 
         if (amount == null) {
             throw new IllegalArgumentException("Amount cannot be null");
@@ -208,9 +226,9 @@ public class CardService {
             throw new IllegalStateException("Cannot update balance for expired card");
         }
 
-        BigDecimal newBalance = card.getBalance().add(amount);
+        Money newBalance = card.getBalance().plus(amount);
 
-        if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
+        if (newBalance.isNegative()) {
             throw new IllegalStateException("Insufficient funds");
         }
 
@@ -227,13 +245,28 @@ public class CardService {
     public Card depositBalance(UUID cardId, BigDecimal amount, String username) {
         log.info("Depositing {} to card {}", amount, cardId);
 
-        if (!validationUtil.isValidAmount(amount)) {
+        Money money = Money.of(amount);
+        if (!validationUtil.isValidAmount(money)) {
             throw new IllegalArgumentException("Amount must be positive");
         }
 
-        Card card = getCardById(cardId, username);
+        if (cardId == null) {
+            throw new IllegalArgumentException("Card ID cannot be null");
+        }
+
+        Card card = findForUpdate(cardId);
+        validateCardAccess(card, username);
 
-        return updateBalance(card, amount);
+        Card updated = updateBalance(card, money);
+
+        // Пополнения не попадают в transfers, без журнала нельзя восстановить баланс на дату
+        CardDeposit deposit = new CardDeposit();
+        deposit.setCardId(cardId);
+        deposit.setAmount(money);
+        deposit.setCreatedAt(card.getUpdatedAt());
+        cardDepositRepository.save(deposit);
+
+        return updated;
     }
 
     @Transactional(readOnly = true)
@@ -242,6 +275,11 @@ public class CardService {
         return cardMaskingUtil.maskPan(card.getPanLast4());
     }
 
+    private Card findForUpdate(UUID cardId) {
+        return (mode == TransferMode.PESSIMISTIC ? cardRepository.findByIdForUpdate(cardId) : cardRepository.findById(cardId))
+                .orElseThrow(() -> new ResourceNotFoundException("Card not found with id: " + cardId));
+    }
+
     private void validateCardAccess(Card card, String username) {
         if (SecurityUtil.isAdmin()) {
             return;
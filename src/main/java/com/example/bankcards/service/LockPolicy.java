@@ -0,0 +1,133 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@Slf4j
+@Component
+public class LockPolicy {
+
+    static final String DEADLOCK_DETECTED = "40P01";
+    static final String SERIALIZATION_FAILURE = "40001";
+    static final String OPTIMISTIC = "optimistic";
+
+    private final CardRepository cardRepository;
+    private final MeterRegistry meterRegistry;
+    private final String lockTimeout;
+    private final int maxAttempts;
+    private final int optimisticMaxAttempts;
+    private final long backoffBaseMillis;
+    private final long backoffMaxMillis;
+
+    public LockPolicy(
+            CardRepository cardRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.lock.timeout-ms}") long lockTimeoutMillis,
+            @Value("${app.lock.max-attempts}") int maxAttempts,
+            @Value("${app.lock.optimistic-max-attempts}") int optimisticMaxAttempts,
+            @Value("${app.lock.backoff-base-ms}") long backoffBaseMillis,
+            @Value("${app.lock.backoff-max-ms}") long backoffMaxMillis
+    ) {
+        this.cardRepository = cardRepository;
+        this.meterRegistry = meterRegistry;
+        this.lockTimeout = lockTimeoutMillis > 0 ? lockTimeoutMillis + "ms" : null;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.optimisticMaxAttempts = Math.max(1, optimisticMaxAttempts);
+        this.backoffBaseMillis = backoffBaseMillis;
+        this.backoffMaxMillis = backoffMaxMillis;
+    }
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (RuntimeException e) {
+                String reason = retryReason(e);
+                int limit = OPTIMISTIC.equals(reason) ? optimisticMaxAttempts : maxAttempts;
+                if (reason == null || attempt >= limit) {
+                    if (reason != null) {
+                        Counter.builder("bank.lock.exhausted")
+                                .tag("operation", operation)
+                                .tag("reason", reason)
+                                .register(meterRegistry)
+                                .increment();
+                        log.warn("{} failed after {} attempts: {}", operation, attempt, reason);
+                    }
+                    throw e;
+                }
+
+                Counter.builder("bank.lock.retries")
+                        .tag("operation", operation)
+                        .tag("reason", reason)
+                        .register(meterRegistry)
+                        .increment();
+                log.debug("Retrying {} after {} (attempt {} of {})", operation, reason, attempt, limit);
+
+                backoff(attempt, e);
+            }
+        }
+    }
+
+    public void applyLockTimeout() {
+        if (lockTimeout != null) {
+            cardRepository.setLocalLockTimeout(lockTimeout);
+        }
+    }
+
+    public void recordLockWait(String operation, long nanos) {
+        Timer.builder("bank.lock.wait")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    String retryReason(Throwable e) {
+        if (e instanceof OptimisticLockingFailureException) {
+            return OPTIMISTIC;
+        }
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql) {
+                if (DEADLOCK_DETECTED.equals(sql.getSQLState())) {
+                    return "deadlock";
+                }
+                if (SERIALIZATION_FAILURE.equals(sql.getSQLState())) {
+                    return "serialization";
+                }
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    private void backoff(int attempt, RuntimeException cause) {
+        long ceiling = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(attempt - 1, 16));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
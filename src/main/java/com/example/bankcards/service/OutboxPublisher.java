@@ -0,0 +1,14 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Доставка событий из outbox во внешний мир. Вызывается внутри транзакции релея:
+ * если метод бросит исключение, события останутся в outbox и будут отправлены повторно.
+ */
+public interface OutboxPublisher {
+
+    void publish(List<OutboxEvent> events);
+}
@@ -0,0 +1,38 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private final OutboxService outboxService;
+    private final int batchSize;
+    private final Counter relayed;
+
+    public OutboxRelay(OutboxService outboxService,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.outbox.batch-size}") int batchSize) {
+        this.outboxService = outboxService;
+        this.batchSize = batchSize;
+        this.relayed = meterRegistry.counter("bank.outbox.relayed");
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms}")
+    public void drain() {
+        try {
+            int published;
+            do {
+                published = outboxService.relayBatch(batchSize);
+                relayed.increment(published);
+            } while (published == batchSize);
+        } catch (RuntimeException e) {
+            log.error("Failed to relay outbox events, will retry", e);
+        }
+    }
+}
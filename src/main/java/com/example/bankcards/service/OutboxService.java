@@ -0,0 +1,86 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.OutboxEvent;
+import com.example.bankcards.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    public static final String AGGREGATE_CARD = "CARD";
+    public static final String AGGREGATE_TRANSFER = "TRANSFER";
+    public static final String AGGREGATE_BLOCK_REQUEST = "BLOCK_REQUEST";
+
+    public static final String CARD_BLOCKED = "CARD_BLOCKED";
+    public static final String CARD_UNBLOCKED = "CARD_UNBLOCKED";
+    public static final String TRANSFER_COMPLETED = "TRANSFER_COMPLETED";
+    public static final String BLOCK_REQUEST_APPROVED = "BLOCK_REQUEST_APPROVED";
+    public static final String BLOCK_REQUEST_REJECTED = "BLOCK_REQUEST_REJECTED";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxPublisher outboxPublisher;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Пишет событие в outbox. Работает только внутри транзакции изменения, чтобы событие и изменение фиксировались вместе.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(String aggregateType, UUID aggregateId, String eventType, Object payload) {
+        outboxEventRepository.save(event(aggregateType, aggregateId, eventType, payload));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(List<OutboxEvent> events) {
+        if (!events.isEmpty()) {
+            outboxEventRepository.saveAll(events);
+        }
+    }
+
+    public OutboxEvent event(String aggregateType, UUID aggregateId, String eventType, Object payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setAggregateType(aggregateType);
+        event.setAggregateId(aggregateId);
+        event.setEventType(eventType);
+        try {
+            event.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize " + eventType + " payload", e);
+        }
+        return event;
+    }
+
+    /**
+     * Забирает пачку событий (SKIP LOCKED, так что несколько экземпляров не мешают друг другу), отдаёт их
+     * публикатору и удаляет. Если транзакция не зафиксируется после публикации, события уйдут повторно.
+     */
+    @Transactional
+    public int relayBatch(int limit) {
+        List<OutboxEvent> events = outboxEventRepository.claimBatch(limit);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        outboxPublisher.publish(events);
+
+        List<UUID> ids = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            ids.add(event.getId());
+        }
+        outboxEventRepository.deleteAllByIdInBatch(ids);
+
+        log.debug("Relayed {} outbox events", events.size());
+        return events.size();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.CardEncryptionUtil;
+import com.example.bankcards.util.CardMaskingUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Находит карту получателя по PAN через уникальный индекс pan_hash, PAN при этом не расшифровываются.
+ * Устаревшая запись кэша (карта удалена на другом узле) может только привести к отказу "не найдена",
+ * но не к переводу на чужую карту: ID карт не переиспользуются.
+ */
+@Slf4j
+@Service
+public class PanResolver {
+
+    private final CardRepository cardRepository;
+    private final CardEncryptionUtil cardEncryptionUtil;
+    private final CardMaskingUtil cardMaskingUtil;
+    private final Cache<String, UUID> cardIds;
+
+    public PanResolver(
+            CardRepository cardRepository,
+            CardEncryptionUtil cardEncryptionUtil,
+            CardMaskingUtil cardMaskingUtil,
+            @Value("${app.transfer.pan-cache.size}") long cacheSize,
+            @Value("${app.transfer.pan-cache.ttl-minutes}") long cacheTtlMinutes
+    ) {
+        this.cardRepository = cardRepository;
+        this.cardEncryptionUtil = cardEncryptionUtil;
+        this.cardMaskingUtil = cardMaskingUtil;
+        this.cardIds = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMinutes(cacheTtlMinutes))
+                .build();
+    }
+
+    public UUID resolve(String pan) {
+        if (!cardMaskingUtil.isValidPan(pan)) {
+            throw new IllegalArgumentException("Invalid card number");
+        }
+
+        String panHash = cardEncryptionUtil.hashPan(pan);
+        UUID cardId = cardIds.getIfPresent(panHash);
+        if (cardId == null) {
+            // Промахи не кэшируются, иначе перебор номеров забивал бы кэш
+            cardId = cardRepository.findIdByPanHash(panHash)
+                    .orElseThrow(() -> new ResourceNotFoundException("Card not found"));
+            cardIds.put(panHash, cardId);
+        }
+        return cardId;
+    }
+
+    public void evict(String panHash) {
+        cardIds.invalidate(panHash);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.bankcards.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ReconciliationJob {
+
+    private final ReconciliationService reconciliationService;
+
+    // Только ставит задачу: сверка идёт на своём потоке и не занимает поток планировщика
+    @Scheduled(cron = "${app.reconciliation.cron}")
+    public void reconcileNightly() {
+        try {
+            reconciliationService.startReconcile();
+        } catch (RuntimeException e) {
+            log.error("Nightly reconciliation could not be started", e);
+        }
+    }
+}
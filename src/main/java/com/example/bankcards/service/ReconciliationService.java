@@ -0,0 +1,257 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.util.UuidRange;
+import com.example.bankcards.util.UuidUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сверка cards.balance с последним снимком баланса и движениями денег после него: переводами и пополнениями.
+ * Карты делятся на диапазоны UUID, каждый диапазон читается потоком на своём read-only соединении.
+ */
+@Service
+@Slf4j
+public class ReconciliationService {
+
+    public static final String RUN_RUNNING = "RUNNING";
+    public static final String RUN_COMPLETED = "COMPLETED";
+    public static final String RUN_FAILED = "FAILED";
+
+    // Ожидаемый баланс — последний снимок карты плюс движения после него, без снимка — весь журнал.
+    // Месяцы transfers, отсоединённые по сроку хранения, всегда покрыты снимком, поэтому в расчёт не попадают
+    static final String RANGE_QUERY = """
+            SELECT c.id,
+                   c.balance,
+                   COALESCE(s.balance, 0)
+                   + COALESCE((SELECT sum(t.amount) FROM transfers t
+                               WHERE t.to_card_id = c.id AND (s.next_day IS NULL OR t.created_at >= s.next_day)), 0)
+                   - COALESCE((SELECT sum(t.amount) FROM transfers t
+                               WHERE t.from_card_id = c.id AND (s.next_day IS NULL OR t.created_at >= s.next_day)), 0)
+                   + COALESCE((SELECT sum(d.amount) FROM card_deposits d
+                               WHERE d.card_id = c.id AND (s.next_day IS NULL OR d.created_at >= s.next_day)), 0) AS expected
+            FROM cards c
+            LEFT JOIN LATERAL (
+                SELECT CAST(p.snapshot_date + 1 AS timestamp) AS next_day, p.balance
+                FROM card_balance_snapshots p
+                WHERE p.card_id = c.id
+                ORDER BY p.snapshot_date DESC
+                LIMIT 1
+            ) s ON true
+            WHERE c.id BETWEEN ? AND ?
+            """;
+
+    static final String INSERT_MISMATCH = """
+            INSERT INTO reconciliation_mismatches (run_id, card_id, balance, expected_balance, detected_at)
+            VALUES (?, ?, ?, ?, now())
+            """;
+
+    private static final int MISMATCH_BATCH_SIZE = 500;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final int chunks;
+    private final int parallelism;
+    private final int fetchSize;
+
+    // Сверка по расписанию идёт на своём потоке: иначе она на часы заняла бы поток планировщика
+    private final ExecutorService runs = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "reconciliation");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicInteger rangesTotal = new AtomicInteger();
+    private final AtomicInteger rangesDone = new AtomicInteger();
+    private final AtomicLong cardsChecked = new AtomicLong();
+    private final AtomicLong runStartedNanos = new AtomicLong();
+
+    private final Counter cardsCounter;
+    private final Counter mismatchCounter;
+    private final Timer runTimer;
+
+    public ReconciliationService(DataSource dataSource,
+                                 JdbcTemplate jdbcTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.reconciliation.chunks}") int chunks,
+                                 @Value("${app.reconciliation.parallelism}") int parallelism,
+                                 @Value("${app.reconciliation.fetch-size}") int fetchSize) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunks = chunks;
+        this.parallelism = parallelism;
+        this.fetchSize = fetchSize;
+
+        this.cardsCounter = meterRegistry.counter("bank.reconciliation.cards");
+        this.mismatchCounter = meterRegistry.counter("bank.reconciliation.mismatches");
+        this.runTimer = meterRegistry.timer("bank.reconciliation.duration");
+        Gauge.builder("bank.reconciliation.progress", this, ReconciliationService::progress)
+                .description("Доля обработанных диапазонов текущей сверки")
+                .register(meterRegistry);
+        Gauge.builder("bank.reconciliation.throughput", this, ReconciliationService::throughput)
+                .description("Карт в секунду в текущей сверке")
+                .baseUnit("cards/s")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ставит полную сверку в очередь фонового потока и сразу возвращается. Для запуска по расписанию.
+     */
+    public void startReconcile() {
+        runs.execute(() -> {
+            try {
+                reconcile();
+            } catch (RuntimeException e) {
+                log.error("Reconciliation failed", e);
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        runs.shutdownNow();
+    }
+
+    /**
+     * Запускает полную сверку. Возвращает ID запуска; расхождения пишутся в reconciliation_mismatches.
+     */
+    public UUID reconcile() {
+
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Reconciliation is already running");
+        }
+
+        // Флаг сбрасывается при любой ошибке, в том числе до старта задач: иначе следующие запуски
+        // навсегда получали бы "already running"
+        try {
+            UUID runId = UuidUtil.timeOrdered();
+            List<UuidRange> ranges = UuidRange.split(chunks);
+            AtomicLong mismatches = new AtomicLong();
+
+            rangesTotal.set(ranges.size());
+            rangesDone.set(0);
+            cardsChecked.set(0);
+            runStartedNanos.set(System.nanoTime());
+
+            jdbcTemplate.update("INSERT INTO reconciliation_runs (id, status, started_at) VALUES (?, ?, now())", runId, RUN_RUNNING);
+            log.info("Reconciliation {} started: {} ranges, parallelism {}", runId, ranges.size(), parallelism);
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            String status = RUN_FAILED;
+            try {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(ranges.size());
+                for (UuidRange range : ranges) {
+                    tasks.add(pool.submit(() -> {
+                        mismatches.addAndGet(reconcileRange(runId, range));
+                        rangesDone.incrementAndGet();
+                    }));
+                }
+                for (ForkJoinTask<?> task : tasks) {
+                    task.join();
+                }
+                status = RUN_COMPLETED;
+            } finally {
+                pool.shutdownNow();
+                long elapsed = System.nanoTime() - runStartedNanos.get();
+                runTimer.record(elapsed, TimeUnit.NANOSECONDS);
+
+                jdbcTemplate.update("UPDATE reconciliation_runs SET status = ?, cards_checked = ?, mismatches = ?, finished_at = now() WHERE id = ?",
+                        status, cardsChecked.get(), mismatches.get(), runId);
+                log.info("Reconciliation {} {}: {} cards, {} mismatches in {} ms",
+                        runId, status, cardsChecked.get(), mismatches.get(), elapsed / 1_000_000);
+            }
+
+            return runId;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    long reconcileRange(UUID runId, UuidRange range) {
+        List<Object[]> batch = new ArrayList<>(MISMATCH_BATCH_SIZE);
+        long found = 0;
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(true);
+            // без этого драйвер Postgres вычитает весь результат в память, игнорируя fetchSize
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement statement = connection.prepareStatement(RANGE_QUERY)) {
+                statement.setFetchSize(fetchSize);
+                statement.setObject(1, range.lower());
+                statement.setObject(2, range.upper());
+
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        cardsChecked.incrementAndGet();
+                        cardsCounter.increment();
+
+                        BigDecimal balance = rows.getBigDecimal(2);
+                        BigDecimal expected = rows.getBigDecimal(3);
+                        if (balance.compareTo(expected) != 0) {
+                            batch.add(new Object[]{runId, rows.getObject(1, UUID.class), balance, expected});
+                            found++;
+                            if (batch.size() == MISMATCH_BATCH_SIZE) {
+                                flushMismatches(batch);
+                            }
+                        }
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to reconcile cards " + range.lower() + ".." + range.upper(), e);
+        }
+
+        flushMismatches(batch);
+        return found;
+    }
+
+    private void flushMismatches(List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_MISMATCH, batch);
+        mismatchCounter.increment(batch.size());
+        log.warn("Reconciliation found {} cards with balance mismatch", batch.size());
+        batch.clear();
+    }
+
+    double progress() {
+        int total = rangesTotal.get();
+        return total == 0 ? 0 : (double) rangesDone.get() / total;
+    }
+
+    double throughput() {
+        if (!running.get()) {
+            return 0;
+        }
+        double seconds = (System.nanoTime() - runStartedNanos.get()) / 1e9;
+        return seconds <= 0 ? 0 : cardsChecked.get() / seconds;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferHistoryItemDto;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.TransferView;
+import com.example.bankcards.util.CardMaskingUtil;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Потоковая выгрузка истории переводов карты: строки читаются курсором и сразу пишутся в ответ.
+ */
+@Service
+@Slf4j
+public class TransferExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            try {
+                return Format.valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported export format: " + value);
+            }
+        }
+    }
+
+    // Нижняя граница выгрузки без since: раньше неё переводов нет
+    static final LocalDateTime HISTORY_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final String CSV_HEADER = "id,from_card_id,from_card_masked,to_card_id,to_card_masked,amount,created_at\n";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final TransferRepository transferRepository;
+    private final CardService cardService;
+    private final CardMaskingUtil cardMaskingUtil;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    public TransferExportService(TransferRepository transferRepository,
+                                 CardService cardService,
+                                 CardMaskingUtil cardMaskingUtil,
+                                 ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager) {
+        this.transferRepository = transferRepository;
+        this.cardService = cardService;
+        this.cardMaskingUtil = cardMaskingUtil;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public StreamingResponseBody export(UUID cardId, Format format, boolean gzip, LocalDateTime since,
+                                        LocalDateTime until, String username) {
+
+        // Проверяем доступ до начала ответа, чтобы вернуть нормальный 403/404
+        cardService.getCardById(cardId, username);
+
+        // Без явных границ выгружается вся история; с границами Postgres читает только нужные секции
+        LocalDateTime from = since != null ? since : HISTORY_START;
+        LocalDateTime to = until != null ? until : LocalDateTime.now();
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Export period is empty");
+        }
+
+        return out -> {
+            long started = System.nanoTime();
+            long rows = transactionTemplate.execute(status -> write(cardId, from, to, format, gzip, out));
+            log.info("Exported {} transfers of card {} as {} in {} ms",
+                    rows, cardId, format, (System.nanoTime() - started) / 1_000_000);
+        };
+    }
+
+    private long write(UUID cardId, LocalDateTime from, LocalDateTime to, Format format, boolean gzip, OutputStream out) {
+        // Курсор Postgres с fetchSize работает только внутри транзакции, поэтому поток читается здесь
+        try (Stream<TransferView> rows = transferRepository.streamHistory(cardId, from, to)) {
+            OutputStream target = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+            Iterator<TransferHistoryItemDto> items = rows.map(row -> item(cardId, row)).iterator();
+            long count = format == Format.CSV ? writeCsv(items, writer) : writeNdjson(items, writer);
+
+            writer.flush();
+            if (target instanceof GZIPOutputStream gzipStream) {
+                gzipStream.finish();
+            }
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to export transfers of card " + cardId, e);
+        }
+    }
+
+    // Карта другого клиента выгружается только маской, как и в истории
+    private TransferHistoryItemDto item(UUID cardId, TransferView row) {
+        String last4 = row.getCounterpartyLast4();
+        return TransferHistoryItemDto.of(row, cardId, last4 == null ? null : cardMaskingUtil.maskPan(last4));
+    }
+
+    private long writeNdjson(Iterator<TransferHistoryItemDto> rows, Writer writer) throws IOException {
+        long count = 0;
+        try (SequenceWriter sequence = objectMapper.writer()
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValues(writer)) {
+            while (rows.hasNext()) {
+                sequence.write(rows.next());
+                count++;
+            }
+        }
+        if (count > 0) {
+            writer.write('\n');
+        }
+        return count;
+    }
+
+    private long writeCsv(Iterator<TransferHistoryItemDto> rows, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        long count = 0;
+        while (rows.hasNext()) {
+            TransferHistoryItemDto row = rows.next();
+            writer.write(row.id().toString());
+            writer.write(',');
+            writeNullable(writer, row.fromCardId());
+            writer.write(',');
+            writeNullable(writer, row.fromCardMasked());
+            writer.write(',');
+            writeNullable(writer, row.toCardId());
+            writer.write(',');
+            writeNullable(writer, row.toCardMasked());
+            writer.write(',');
+            writer.write(row.amount().toPlainString());
+            writer.write(',');
+            writer.write(row.createdAt().toString());
+            writer.write('\n');
+            count++;
+        }
+        return count;
+    }
+
+    private static void writeNullable(Writer writer, Object value) throws IOException {
+        if (value != null) {
+            writer.write(value.toString());
+        }
+    }
+}
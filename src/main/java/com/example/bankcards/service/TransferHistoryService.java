@@ -0,0 +1,106 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferHistoryPageDto;
+import com.example.bankcards.dto.TransferHistoryItemDto;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.TransferView;
+import com.example.bankcards.util.CardMaskingUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TransferHistoryService {
+
+    private static final String CURSOR_SEPARATOR = "|";
+
+    private final TransferRepository transferRepository;
+    private final CardService cardService;
+    private final CardMaskingUtil cardMaskingUtil;
+
+    @Value("${app.transfer.history.default-page-size}")
+    private int defaultPageSize = 50;
+
+    @Value("${app.transfer.history.max-page-size}")
+    private int maxPageSize = 200;
+
+    @Value("${app.transfer.history.default-window-days}")
+    private int defaultWindowDays = 365;
+
+    @Transactional(readOnly = true)
+    public TransferHistoryPageDto getHistory(UUID cardId, String cursor, Integer size, LocalDateTime since,
+                                             String username) {
+
+        cardService.getCardById(cardId, username);
+
+        int limit = size == null ? defaultPageSize : size;
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize);
+        }
+
+        // Берём на одну строку больше, чтобы понять, есть ли следующая страница, без COUNT(*).
+        // Нижняя граница по времени нужна, чтобы Postgres отсёк старые секции transfers
+        List<TransferView> rows;
+        LocalDateTime lowerBound;
+        if (cursor == null || cursor.isBlank()) {
+            lowerBound = since != null ? since : LocalDateTime.now().minusDays(defaultWindowDays);
+            rows = transferRepository.findHistory(cardId, lowerBound, limit + 1);
+        } else {
+            Cursor position = decodeCursor(cursor);
+            lowerBound = position.since();
+            rows = transferRepository.findHistoryBefore(cardId, lowerBound, position.createdAt(), position.id(), limit + 1);
+        }
+
+        boolean hasNext = rows.size() > limit;
+        List<TransferHistoryItemDto> items = new ArrayList<>(Math.min(rows.size(), limit));
+        for (int i = 0; i < rows.size() && i < limit; i++) {
+            TransferView row = rows.get(i);
+            String last4 = row.getCounterpartyLast4();
+            items.add(TransferHistoryItemDto.of(row, cardId, last4 == null ? null : cardMaskingUtil.maskPan(last4)));
+        }
+
+        String nextCursor = null;
+        if (hasNext) {
+            TransferHistoryItemDto last = items.get(items.size() - 1);
+            nextCursor = encodeCursor(last.createdAt(), last.id(), lowerBound);
+        }
+
+        log.debug("Fetched {} transfers for card {}", items.size(), cardId);
+
+        return new TransferHistoryPageDto(items, nextCursor);
+    }
+
+    static String encodeCursor(LocalDateTime createdAt, UUID id, LocalDateTime since) {
+        String raw = createdAt + CURSOR_SEPARATOR + id + CURSOR_SEPARATOR + since;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(Pattern.quote(CURSOR_SEPARATOR));
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new Cursor(LocalDateTime.parse(parts[0]), UUID.fromString(parts[1]), LocalDateTime.parse(parts[2]));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    record Cursor(LocalDateTime createdAt, UUID id, LocalDateTime since) {
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferResponseDto;
+import com.example.bankcards.repository.TransferRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+@Slf4j
+@Service
+public class TransferIdempotencyService {
+
+    public static final int MAX_KEY_LENGTH = 100;
+
+    private final TransferRepository transferRepository;
+    private final Cache<Key, TransferResponseDto> recentTransfers;
+
+    public TransferIdempotencyService(
+            TransferRepository transferRepository,
+            @Value("${app.transfer.idempotency.cache-size}") long cacheSize,
+            @Value("${app.transfer.idempotency.cache-ttl-minutes}") long cacheTtlMinutes
+    ) {
+        this.transferRepository = transferRepository;
+        this.recentTransfers = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMinutes(cacheTtlMinutes))
+                .build();
+    }
+
+    public void validateKey(String idempotencyKey) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters long");
+        }
+    }
+
+    public Optional<TransferResponseDto> findPrevious(String username, UUID fromCardId, UUID toCardId,
+                                                      BigDecimal amount, String idempotencyKey) {
+        Key key = new Key(username, fromCardId, idempotencyKey);
+
+        TransferResponseDto previous = recentTransfers.getIfPresent(key);
+        if (previous == null) {
+            previous = transferRepository.findByFromCardIdAndIdempotencyKey(fromCardId, idempotencyKey)
+                    .filter(t -> t.getFromCard().getUser().getUsername().equals(username))
+                    .map(TransferResponseDto::from)
+                    .orElse(null);
+
+            if (previous == null) {
+                return Optional.empty();
+            }
+            recentTransfers.put(key, previous);
+        }
+
+        if (!previous.toCardId().equals(toCardId) || previous.amount().compareTo(amount) != 0) {
+            throw new IllegalStateException("Idempotency key was already used for a different transfer");
+        }
+
+        log.info("Replaying transfer {} for idempotency key {} of user {}", previous.id(), idempotencyKey, username);
+        return Optional.of(previous);
+    }
+
+    public void remember(String username, String idempotencyKey, TransferResponseDto transfer) {
+        recentTransfers.put(new Key(username, transfer.fromCardId(), idempotencyKey), transfer);
+    }
+
+    private record Key(String username, UUID fromCardId, String idempotencyKey) {
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.bankcards.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Обслуживание месячных секций transfers: заранее создаёт будущие и отсоединяет старше срока хранения.
+ * Отсоединённая секция остаётся отдельной таблицей для архива и удаляется вручную.
+ * Месяц отсоединяется, только если его покрывает завершённый снимок балансов: после этого и баланс на дату,
+ * и сверка считают от снимка, а не от начала журнала.
+ */
+@Slf4j
+@Service
+public class TransferPartitionService {
+
+    static final Pattern PARTITION_NAME = Pattern.compile("transfers_y(\\d{4})m(\\d{2})");
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("'transfers_y'yyyy'm'MM");
+
+    static final String LIST_PARTITIONS = """
+            SELECT c.relname
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            JOIN pg_class p ON p.oid = i.inhparent
+            WHERE p.relname = 'transfers'
+            """;
+
+    // Секции, чей DETACH ... CONCURRENTLY прервался: их остаётся только доделать через FINALIZE
+    static final String LIST_PENDING_DETACH = """
+            SELECT c.relname
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            JOIN pg_class p ON p.oid = i.inhparent
+            WHERE p.relname = 'transfers' AND i.inhdetachpending
+            """;
+
+    static final String LATEST_COMPLETE_SNAPSHOT = """
+            SELECT max(snapshot_date)
+            FROM (SELECT snapshot_date
+                  FROM balance_snapshot_chunks
+                  GROUP BY snapshot_date
+                  HAVING count(*) >= ?) d
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final int snapshotChunks;
+
+    private volatile LocalDateTime historyStart;
+
+    public TransferPartitionService(JdbcTemplate jdbcTemplate,
+                                    @Value("${app.transfer.partitions.months-ahead}") int monthsAhead,
+                                    @Value("${app.transfer.partitions.retention-months}") int retentionMonths,
+                                    @Value("${app.balance-snapshot.chunks}") int snapshotChunks) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.snapshotChunks = snapshotChunks;
+    }
+
+    /**
+     * Начало первой подключённой месячной секции, если старые секции отсоединяются; движения раньше
+     * этого момента могут быть уже в архиве. null — журнал переводов полный.
+     */
+    public LocalDateTime historyStart() {
+        return historyStart;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.transfer.partitions.cron}")
+    public void maintain() {
+        try {
+            maintain(YearMonth.now());
+        } catch (RuntimeException e) {
+            log.error("Transfer partition maintenance failed", e);
+        }
+    }
+
+    void maintain(YearMonth current) {
+        List<String> existing = jdbcTemplate.queryForList(LIST_PARTITIONS, String.class);
+
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            String name = partitionName(month);
+            if (!existing.contains(name)) {
+                LocalDate from = month.atDay(1);
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF transfers FOR VALUES FROM ('"
+                        + from + "') TO ('" + from.plusMonths(1) + "')");
+                log.info("Created transfers partition {}", name);
+            }
+        }
+
+        List<String> attached = new ArrayList<>(existing);
+
+        for (String name : jdbcTemplate.queryForList(LIST_PENDING_DETACH, String.class)) {
+            jdbcTemplate.execute("ALTER TABLE transfers DETACH PARTITION " + name + " FINALIZE");
+            attached.remove(name);
+            log.info("Finalized detach of transfers partition {}", name);
+        }
+
+        List<String> expired = expired(attached, current);
+        if (!expired.isEmpty()) {
+            LocalDate covered = jdbcTemplate.queryForObject(LATEST_COMPLETE_SNAPSHOT, LocalDate.class, snapshotChunks);
+            for (String name : expired) {
+                YearMonth month = monthOf(name);
+                if (covered == null || covered.isBefore(month.atEndOfMonth())) {
+                    log.warn("Transfers partition {} is past retention but no complete balance snapshot covers it, "
+                            + "keeping it attached", name);
+                    continue;
+                }
+                // CONCURRENTLY не берёт ACCESS EXCLUSIVE на transfers и не останавливает переводы,
+                // но не работает в транзакции, поэтому maintain() выполняется без неё
+                jdbcTemplate.execute("ALTER TABLE transfers DETACH PARTITION " + name + " CONCURRENTLY");
+                attached.remove(name);
+                log.info("Detached transfers partition {}", name);
+            }
+        }
+
+        historyStart = retentionMonths <= 0 ? null : attached.stream()
+                .filter(name -> PARTITION_NAME.matcher(name).matches())
+                .map(TransferPartitionService::monthOf)
+                .min(YearMonth::compareTo)
+                .map(month -> month.atDay(1).atStartOfDay())
+                .orElse(null);
+    }
+
+    List<String> expired(List<String> partitions, YearMonth current) {
+        List<String> expired = new ArrayList<>();
+        if (retentionMonths <= 0) {
+            return expired;
+        }
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        for (String name : partitions) {
+            if (PARTITION_NAME.matcher(name).matches() && monthOf(name).isBefore(oldestKept)) {
+                expired.add(name);
+            }
+        }
+        return expired;
+    }
+
+    private static YearMonth monthOf(String name) {
+        Matcher matcher = PARTITION_NAME.matcher(name);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a monthly transfers partition: " + name);
+        }
+        return YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+    }
+
+    static String partitionName(YearMonth month) {
+        return month.atDay(1).format(NAME_FORMAT);
+    }
+}
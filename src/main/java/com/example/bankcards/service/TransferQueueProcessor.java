@@ -0,0 +1,39 @@
+package com.example.bankcards.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Проводит переводы из очереди transfer_requests пакетами, одна транзакция на пакет.
+ */
+@Component
+@Slf4j
+public class TransferQueueProcessor {
+
+    private final TransferService transferService;
+    private final LockPolicy lockPolicy;
+    private final int batchSize;
+
+    public TransferQueueProcessor(TransferService transferService,
+                                  LockPolicy lockPolicy,
+                                  @Value("${app.transfer.async.batch-size}") int batchSize) {
+        this.transferService = transferService;
+        this.lockPolicy = lockPolicy;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.transfer.async.poll-interval-ms}")
+    public void drain() {
+        try {
+            int processed;
+            do {
+                processed = lockPolicy.execute(TransferService.LOCK_OPERATION,
+                        () -> transferService.processQueued(batchSize));
+            } while (processed == batchSize);
+        } catch (RuntimeException e) {
+            log.error("Failed to process queued transfers", e);
+        }
+    }
+}
@@ -1,20 +1,42 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferItemResultDto;
+import com.example.bankcards.dto.TransferRequestDto;
+import com.example.bankcards.dto.TransferResponseDto;
+import com.example.bankcards.dto.TransferStatusDto;
 import com.example.bankcards.entity.Card;
-import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.OutboxEvent;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.TransferIdempotencyKey;
+import com.example.bankcards.entity.TransferRequest;
 import com.example.bankcards.exception.ResourceNotFoundException;
 import com.example.bankcards.repository.CardRepository;
-import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.TransferIdempotencyKeyRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.TransferRequestRepository;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.util.CardMaskingUtil;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.SecurityUtil;
+import com.example.bankcards.util.UuidUtil;
 import com.example.bankcards.util.ValidationUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -23,14 +45,391 @@ import java.util.UUID;
 public class TransferService {
 
     public static final String STATUS_ACTIVE = "ACTIVE";
+    public static final String LOCK_OPERATION = "transfer";
+
+    public static final String REQUEST_PENDING = "PENDING";
+    public static final String REQUEST_COMPLETED = "COMPLETED";
+    public static final String REQUEST_REJECTED = "REJECTED";
+
+    /**
+     * Единый отказ по чужой карте получателя: несуществующая, неактивная и просроченная карта неотличимы,
+     * иначе по ответам можно перебирать PAN и узнавать состояние чужих карт.
+     */
+    public static final String DESTINATION_REJECTED = "Transfer to this card is not possible";
 
     private final CardRepository cardRepository;
-    private final UserRepository userRepository;
+    private final TransferRepository transferRepository;
+    private final TransferRequestRepository transferRequestRepository;
+    private final TransferIdempotencyKeyRepository transferIdempotencyKeyRepository;
     private final ValidationUtil validationUtil;
+    private final LockPolicy lockPolicy;
+    private final TransferVelocityLimiter velocityLimiter;
+    private final OutboxService outboxService;
+    private final CardMaskingUtil cardMaskingUtil;
+
+    @Value("${app.transfer.mode}")
+    private TransferMode mode = TransferMode.PESSIMISTIC;
+
+    @Value("${app.transfer.batch-max-size}")
+    private int batchMaxSize;
+
+    @Transactional
+    public Transfer transfer(UUID fromCardId, UUID toCardId, BigDecimal amount, AuthenticatedUser user) {
+        return transfer(fromCardId, toCardId, amount, user, null);
+    }
+
+    @Transactional
+    public Transfer transfer(UUID fromCardId, UUID toCardId, BigDecimal amount, AuthenticatedUser user,
+                             String idempotencyKey) {
+        return transfer(fromCardId, toCardId, amount, user, idempotencyKey, false);
+    }
 
+    /**
+     * Перевод на карту другого клиента. Карта получателя уже найдена по PAN, у неё проверяется только
+     * статус и срок действия, владельцем должна быть лишь карта списания.
+     */
     @Transactional
-    public void transfer(UUID fromCardId, UUID toCardId, BigDecimal amount, String username) {
+    public Transfer transferToCustomer(UUID fromCardId, UUID toCardId, BigDecimal amount, AuthenticatedUser user,
+                                       String idempotencyKey) {
+        return transfer(fromCardId, toCardId, amount, user, idempotencyKey, true);
+    }
+
+    /**
+     * Проверяет, что карта списания принадлежит пользователю. Вызывается до поиска карты получателя по PAN:
+     * без своей карты нельзя узнать, существует ли чужая.
+     */
+    @Transactional(readOnly = true)
+    public void checkSourceCard(UUID fromCardId, AuthenticatedUser user) {
+        if (fromCardId == null) {
+            throw new IllegalArgumentException("Card IDs cannot be null");
+        }
+        if (cardRepository.findByIdAndUserId(fromCardId, user.id()).isEmpty()) {
+            throw new AccessDeniedException("You can transfer only between your own cards");
+        }
+    }
+
+    public static IllegalStateException destinationRejected() {
+        return new IllegalStateException(DESTINATION_REJECTED);
+    }
+
+    private Transfer transfer(UUID fromCardId, UUID toCardId, BigDecimal amount, AuthenticatedUser user,
+                              String idempotencyKey, boolean anyDestination) {
+
+        Money money = Money.of(amount);
+        validateRequest(fromCardId, toCardId, money);
+        if (user == null) {
+            throw new IllegalArgumentException("User cannot be null");
+        }
+
+        if (mode == TransferMode.CONDITIONAL_UPDATE) {
+            return transferConditionally(fromCardId, toCardId, money, user, idempotencyKey, anyDestination);
+        }
+
+        List<Card> cards;
+        if (mode == TransferMode.OPTIMISTIC) {
+            cards = cardRepository.findAllById(List.of(fromCardId, toCardId));
+        } else {
+            lockPolicy.applyLockTimeout();
+            long lockStarted = System.nanoTime();
+            cards = cardRepository.findBothByIdForUpdate(fromCardId, toCardId);
+            lockPolicy.recordLockWait(LOCK_OPERATION, System.nanoTime() - lockStarted);
+        }
+        if (cards.size() != 2) {
+            Card from = cards.stream().filter(c -> c.getId().equals(fromCardId)).findFirst().orElse(null);
+            throw cardsNotFound(from, user, anyDestination);
+        }
+
+        Card from = cards.get(0).getId().equals(fromCardId) ? cards.get(0) : cards.get(1);
+        Card to = cards.get(0).getId().equals(toCardId) ? cards.get(0) : cards.get(1);
+
+        LocalDateTime now = LocalDateTime.now();
+        Transfer transfer = apply(from, to, money, user.id(), anyDestination, now);
+        transfer.setIdempotencyKey(idempotencyKey);
+
+        cardRepository.save(from);
+        cardRepository.save(to);
+        transferRepository.save(transfer);
+        if (idempotencyKey != null) {
+            transferIdempotencyKeyRepository.save(new TransferIdempotencyKey(transfer));
+        }
+        outboxService.record(OutboxService.AGGREGATE_TRANSFER, transfer.getId(), OutboxService.TRANSFER_COMPLETED,
+                TransferResponseDto.from(transfer));
+
+        log.info("Transfer {} of {} from {} to {} for user {}", transfer.getId(), amount, fromCardId, toCardId, user.username());
+
+        return transfer;
+    }
+
+    @Transactional
+    public List<BatchTransferItemResultDto> transferBatch(List<TransferRequestDto> items, AuthenticatedUser user) {
+
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Batch cannot be empty");
+        }
+        if (items.size() > batchMaxSize) {
+            throw new IllegalArgumentException("Batch cannot contain more than " + batchMaxSize + " transfers");
+        }
+
+        List<PendingTransfer> pending = new ArrayList<>(items.size());
+        for (TransferRequestDto item : items) {
+            pending.add(new PendingTransfer(null, item.fromCardId(), item.toCardId(), Money.of(item.amount()), user.id()));
+        }
+
+        List<Outcome> outcomes = applyAll(pending);
+
+        List<BatchTransferItemResultDto> results = new ArrayList<>(outcomes.size());
+        for (int i = 0; i < outcomes.size(); i++) {
+            Outcome outcome = outcomes.get(i);
+            results.add(outcome.transfer() != null
+                    ? BatchTransferItemResultDto.completed(i, outcome.transfer().getId())
+                    : BatchTransferItemResultDto.rejected(i, outcome.error()));
+        }
+
+        log.info("Batch of {} transfers for user {}", items.size(), user.username());
+
+        return results;
+    }
+
+    @Transactional
+    public TransferRequest submit(UUID fromCardId, UUID toCardId, BigDecimal amount, AuthenticatedUser user,
+                                  String idempotencyKey) {
+
+        Money money = Money.of(amount);
+        validateRequest(fromCardId, toCardId, money);
+
+        if (idempotencyKey != null) {
+            Optional<TransferRequest> previous = transferRequestRepository.findByUserIdAndIdempotencyKey(user.id(), idempotencyKey);
+            if (previous.isPresent()) {
+                TransferRequest request = previous.get();
+                if (!request.getFromCardId().equals(fromCardId) || !request.getToCardId().equals(toCardId)
+                        || !request.getAmount().equals(money)) {
+                    throw new IllegalStateException("Idempotency key was already used for a different transfer");
+                }
+                return request;
+            }
+        }
+
+        List<Card> cards = cardRepository.findAllById(List.of(fromCardId, toCardId));
+        if (cards.size() != 2) {
+            throw new ResourceNotFoundException("One or both cards not found");
+        }
+        for (Card card : cards) {
+            if (!card.getUser().getId().equals(user.id())) {
+                throw new AccessDeniedException("You can transfer only between your own cards");
+            }
+        }
+
+        TransferRequest request = new TransferRequest();
+        request.setUserId(user.id());
+        request.setFromCardId(fromCardId);
+        request.setToCardId(toCardId);
+        request.setAmount(money);
+        request.setIdempotencyKey(idempotencyKey);
+        request.setStatus(REQUEST_PENDING);
+
+        TransferRequest saved = transferRequestRepository.save(request);
+        log.info("Queued transfer {} of {} from {} to {} for user {}", saved.getId(), amount, fromCardId, toCardId, user.username());
+
+        return saved;
+    }
+
+    @Transactional
+    public int processQueued(int limit) {
+
+        List<TransferRequest> requests = transferRequestRepository.claimPending(limit);
+        if (requests.isEmpty()) {
+            return 0;
+        }
+
+        List<PendingTransfer> pending = new ArrayList<>(requests.size());
+        for (TransferRequest request : requests) {
+            pending.add(new PendingTransfer(request.getId(), request.getFromCardId(), request.getToCardId(),
+                    request.getAmount(), request.getUserId()));
+        }
 
+        List<Outcome> outcomes = applyAll(pending);
+
+        LocalDateTime now = LocalDateTime.now();
+        int completed = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            TransferRequest request = requests.get(i);
+            Outcome outcome = outcomes.get(i);
+            if (outcome.transfer() != null) {
+                request.setStatus(REQUEST_COMPLETED);
+                completed++;
+            } else {
+                request.setStatus(REQUEST_REJECTED);
+                request.setError(outcome.error());
+            }
+            request.setProcessedAt(now);
+        }
+
+        log.info("Processed {} queued transfers: {} completed", requests.size(), completed);
+
+        return requests.size();
+    }
+
+    @Transactional(readOnly = true)
+    public TransferStatusDto getStatus(UUID transferId, AuthenticatedUser user) {
+
+        Optional<TransferRequest> request = transferRequestRepository.findById(transferId);
+        if (request.isPresent()) {
+            if (!request.get().getUserId().equals(user.id()) && !SecurityUtil.isAdmin()) {
+                throw new AccessDeniedException("You can view only your own transfers");
+            }
+            return TransferStatusDto.from(request.get());
+        }
+
+        Transfer transfer = findTransfer(transferId)
+                .orElseThrow(() -> new ResourceNotFoundException("Transfer not found: " + transferId));
+        if (!transfer.getFromCard().getUser().getId().equals(user.id()) && !SecurityUtil.isAdmin()) {
+            throw new AccessDeniedException("You can view only your own transfers");
+        }
+        Card to = transfer.getToCard();
+        boolean foreign = !to.getUser().getId().equals(transfer.getFromCard().getUser().getId());
+        return TransferStatusDto.completed(transfer, foreign ? cardMaskingUtil.maskPan(to.getPanLast4()) : null);
+    }
+
+    private Optional<Transfer> findTransfer(UUID transferId) {
+        LocalDateTime issuedAt = UuidUtil.timestampOf(transferId);
+        if (issuedAt == null) {
+            return transferRepository.findById(transferId);
+        }
+        // created_at ставится почти одновременно с id (для очереди - при проведении), запас в сутки
+        // оставляет в плане одну-две секции вместо всех. Без запасного поиска по всем секциям: иначе каждый
+        // неизвестный id стоил бы полного обхода; переводы из очереди находятся выше, по transfer_requests
+        return transferRepository.findByIdAndCreatedAtBetween(transferId, issuedAt.minusDays(1), issuedAt.plusDays(1));
+    }
+
+    private List<Outcome> applyAll(List<PendingTransfer> items) {
+
+        Set<UUID> cardIds = new HashSet<>();
+        for (PendingTransfer item : items) {
+            if (item.fromCardId() != null && item.toCardId() != null) {
+                cardIds.add(item.fromCardId());
+                cardIds.add(item.toCardId());
+            }
+        }
+
+        lockPolicy.applyLockTimeout();
+        long lockStarted = System.nanoTime();
+        Map<UUID, Card> cards = new HashMap<>();
+        for (Card card : cardRepository.findAllByIdForUpdate(cardIds)) {
+            cards.put(card.getId(), card);
+        }
+        lockPolicy.recordLockWait(LOCK_OPERATION, System.nanoTime() - lockStarted);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Outcome> outcomes = new ArrayList<>(items.size());
+        List<Transfer> transfers = new ArrayList<>();
+        Set<Card> touched = new HashSet<>();
+
+        for (PendingTransfer item : items) {
+            try {
+                validateRequest(item.fromCardId(), item.toCardId(), item.amount());
+
+                Card from = cards.get(item.fromCardId());
+                Card to = cards.get(item.toCardId());
+                if (from == null || to == null) {
+                    throw new ResourceNotFoundException("One or both cards not found");
+                }
+
+                Transfer transfer = apply(from, to, item.amount(), item.userId(), false, now);
+                if (item.transferId() != null) {
+                    transfer.setId(item.transferId());
+                }
+                transfers.add(transfer);
+                touched.add(from);
+                touched.add(to);
+
+                outcomes.add(new Outcome(transfer, null));
+            } catch (IllegalArgumentException | IllegalStateException
+                     | ResourceNotFoundException | AccessDeniedException e) {
+                outcomes.add(new Outcome(null, e.getMessage()));
+            }
+        }
+
+        cardRepository.saveAll(touched);
+        transferRepository.saveAll(transfers);
+
+        List<OutboxEvent> events = new ArrayList<>(transfers.size());
+        for (Transfer transfer : transfers) {
+            events.add(outboxService.event(OutboxService.AGGREGATE_TRANSFER, transfer.getId(),
+                    OutboxService.TRANSFER_COMPLETED, TransferResponseDto.from(transfer)));
+        }
+        outboxService.recordAll(events);
+
+        log.debug("Applied {} of {} transfers over {} locked cards", transfers.size(), items.size(), cards.size());
+
+        return outcomes;
+    }
+
+    private Transfer transferConditionally(UUID fromCardId, UUID toCardId, Money amount, AuthenticatedUser user,
+                                           String idempotencyKey, boolean anyDestination) {
+
+        Transfer transfer = new Transfer();
+        transfer.setAmount(amount);
+        transfer.setIdempotencyKey(idempotencyKey);
+
+        YearMonth current = YearMonth.now();
+        lockPolicy.applyLockTimeout();
+        long lockStarted = System.nanoTime();
+        long applied = cardRepository.transferConditionally(
+                transfer.getId(),
+                fromCardId,
+                toCardId,
+                user.id(),
+                amount.toBigDecimal(),
+                current.getYear() * 12 + current.getMonthValue(),
+                transfer.getCreatedAt(),
+                idempotencyKey,
+                anyDestination
+        );
+        lockPolicy.recordLockWait(LOCK_OPERATION, System.nanoTime() - lockStarted);
+
+        if (applied != 3) {
+            throw rejectionReason(fromCardId, toCardId, amount, user, anyDestination);
+        }
+
+        // Резервируем только после того, как UPDATE подтвердил владельца карты: чужой или выдуманный ID
+        // не должен ни занимать окно лимита, ни заводить запись в кэше. Превышение лимита откатит и сам перевод
+        Card from = cardRepository.getReferenceById(fromCardId);
+        velocityLimiter.reserve(fromCardId, from.getUser().getRole().getName(), amount, transfer.getCreatedAt());
+
+        transfer.setFromCard(from);
+        transfer.setToCard(cardRepository.getReferenceById(toCardId));
+        outboxService.record(OutboxService.AGGREGATE_TRANSFER, transfer.getId(), OutboxService.TRANSFER_COMPLETED,
+                new TransferResponseDto(transfer.getId(), fromCardId, toCardId, amount.toBigDecimal(), transfer.getCreatedAt()));
+
+        log.info("Transfer {} of {} from {} to {} for user {} (conditional update)",
+                transfer.getId(), amount, fromCardId, toCardId, user.username());
+
+        return transfer;
+    }
+
+    private RuntimeException rejectionReason(UUID fromCardId, UUID toCardId, Money amount, AuthenticatedUser user,
+                                             boolean anyDestination) {
+        Card from = cardRepository.findById(fromCardId).orElse(null);
+        Card to = cardRepository.findById(toCardId).orElse(null);
+        if (from == null || to == null) {
+            return cardsNotFound(from, user, anyDestination);
+        }
+        try {
+            check(from, to, amount, user.id(), anyDestination);
+        } catch (RuntimeException e) {
+            return e;
+        }
+        return new IllegalStateException("Cards changed concurrently, retry the transfer");
+    }
+
+    private RuntimeException cardsNotFound(Card from, AuthenticatedUser user, boolean anyDestination) {
+        if (anyDestination && from != null && from.getUser().getId().equals(user.id())) {
+            return destinationRejected();
+        }
+        return new ResourceNotFoundException("One or both cards not found");
+    }
+
+    private void validateRequest(UUID fromCardId, UUID toCardId, Money amount) {
         if (fromCardId == null || toCardId == null) {
             throw new IllegalArgumentException("Card IDs cannot be null");
         }
@@ -40,49 +439,55 @@ public class TransferService {
         if (!validationUtil.isValidAmount(amount)) {
             throw new IllegalArgumentException("Amount must be positive");
         }
-        if (username == null || username.isBlank()) {
-            throw new IllegalArgumentException("Username cannot be empty");
-        }
+    }
 
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
+    private Transfer apply(Card from, Card to, Money amount, UUID userId, boolean anyDestination, LocalDateTime now) {
 
-        List<Card> cards = cardRepository.findBothByIdForUpdate(fromCardId, toCardId);
-        if (cards.size() != 2) {
-            throw new ResourceNotFoundException("One or both cards not found");
-        }
+        check(from, to, amount, userId, anyDestination);
+        velocityLimiter.reserve(from.getId(), from.getUser().getRole().getName(), amount, now);
 
-        Card from = cards.get(0).getId().equals(fromCardId) ? cards.get(0) : cards.get(1);
-        Card to = cards.get(0).getId().equals(toCardId) ? cards.get(0) : cards.get(1);
+        from.setBalance(from.getBalance().minus(amount));
+        to.setBalance(to.getBalance().plus(amount));
+        from.setUpdatedAt(now);
+        to.setUpdatedAt(now);
+
+        Transfer transfer = new Transfer();
+        transfer.setFromCard(from);
+        transfer.setToCard(to);
+        transfer.setAmount(amount);
+        transfer.setCreatedAt(now);
+        return transfer;
+    }
+
+    private void check(Card from, Card to, Money amount, UUID userId, boolean anyDestination) {
 
-        if (!from.getUser().getId().equals(user.getId()) || !to.getUser().getId().equals(user.getId())) {
+        if (!from.getUser().getId().equals(userId) || !anyDestination && !to.getUser().getId().equals(userId)) {
             throw new AccessDeniedException("You can transfer only between your own cards");
         }
 
-        if (!STATUS_ACTIVE.equals(from.getStatus()) || !STATUS_ACTIVE.equals(to.getStatus())) {
+        if (!STATUS_ACTIVE.equals(from.getStatus()) || !anyDestination && !STATUS_ACTIVE.equals(to.getStatus())) {
             throw new IllegalStateException("Both cards must be active");
         }
 
         if (validationUtil.isCardExpired(from.getExpMonth(), from.getExpYear())
-                || validationUtil.isCardExpired(to.getExpMonth(), to.getExpYear())) {
+                || !anyDestination && validationUtil.isCardExpired(to.getExpMonth(), to.getExpYear())) {
             throw new IllegalStateException("Cannot transfer using expired card");
         }
 
-        BigDecimal newFromBalance = from.getBalance().subtract(amount);
-        if (newFromBalance.compareTo(BigDecimal.ZERO) < 0) {
+        if (from.getBalance().isLessThan(amount)) {
             throw new IllegalStateException("Insufficient funds");
         }
 
-        from.setBalance(newFromBalance);
-        to.setBalance(to.getBalance().add(amount));
-
-        LocalDateTime now = LocalDateTime.now();
-        from.setUpdatedAt(now);
-        to.setUpdatedAt(now);
+        // Чужая карта проверяется последней: ответ по ней не зависит от того, почему она не подходит
+        if (anyDestination && (!STATUS_ACTIVE.equals(to.getStatus())
+                || validationUtil.isCardExpired(to.getExpMonth(), to.getExpYear()))) {
+            throw destinationRejected();
+        }
+    }
 
-        cardRepository.save(from);
-        cardRepository.save(to);
+    private record PendingTransfer(UUID transferId, UUID fromCardId, UUID toCardId, Money amount, UUID userId) {
+    }
 
-        log.info("Transfer {} from {} to {} for user {}", amount, fromCardId, toCardId, username);
+    private record Outcome(Transfer transfer, String error) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,222 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.TransferLimitProperties;
+import com.example.bankcards.util.Money;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Скользящие счётчики исходящих переводов по картам: 24 часовых слота для суток и 30 дневных для месяца.
+ * Счётчик заполняется из transfers только когда карты нет в памяти, на каждом переводе SUM не выполняется.
+ */
+@Slf4j
+@Service
+public class TransferVelocityLimiter {
+
+    static final int HOURS = 24;
+    static final int DAYS = 30;
+
+    static final String CARD_BUCKETS_QUERY = """
+            SELECT date_trunc('hour', created_at) AS hour, sum(amount) AS amount, count(*) AS cnt
+            FROM transfers
+            WHERE from_card_id = ? AND created_at >= ?
+            GROUP BY 1
+            """;
+
+    static final String ALL_BUCKETS_QUERY = """
+            SELECT from_card_id, date_trunc('hour', created_at) AS hour, sum(amount) AS amount, count(*) AS cnt
+            FROM transfers
+            WHERE created_at >= ?
+            GROUP BY 1, 2
+            """;
+
+    private final TransferLimitProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Cache<UUID, Window> windows;
+
+    public TransferVelocityLimiter(TransferLimitProperties properties,
+                                   JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.windows = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .expireAfterAccess(Duration.ofMinutes(properties.getCacheTtlMinutes()))
+                .build();
+    }
+
+    /**
+     * Учитывает перевод в счётчиках карты и проверяет лимиты. При откате транзакции перевод вычитается обратно.
+     */
+    public void reserve(UUID cardId, String role, Money amount, LocalDateTime now) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        TransferLimitProperties.Limit limit = properties.resolve(cardId, role);
+        long minor = amount.minor();
+        long hour = epochHour(now);
+
+        Window window = windows.get(cardId, id -> load(id, hour));
+
+        // Сначала добавляем, потом проверяем: параллельные переводы могут только лишний раз отказать, но не превысить лимит
+        window.add(hour, minor, 1);
+        String exceeded = window.exceeded(hour, limit);
+        if (exceeded != null) {
+            window.add(hour, -minor, -1);
+            throw new IllegalStateException(exceeded + " transfer limit exceeded");
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        window.add(hour, -minor, -1);
+                    }
+                }
+            });
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmup() {
+        if (!properties.isEnabled() || !properties.isWarmup()) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        long nowHour = epochHour(LocalDateTime.now());
+        Map<UUID, Window> loaded = new HashMap<>();
+
+        // В транзакции драйвер читает курсором порциями по fetchSize, а не весь результат сразу
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ALL_BUCKETS_QUERY);
+            statement.setFetchSize(1000);
+            statement.setTimestamp(1, Timestamp.valueOf(windowStart(nowHour)));
+            return statement;
+        }, rows -> {
+            if (loaded.size() >= properties.getCacheSize()) {
+                return;
+            }
+            loaded.computeIfAbsent(rows.getObject(1, UUID.class), id -> new Window())
+                    .add(epochHour(rows.getTimestamp(2).toLocalDateTime()), toMinor(rows.getBigDecimal(3)), rows.getInt(4));
+        }));
+
+        // Карты, успевшие загрузиться по первому переводу, уже точные — их не трогаем
+        loaded.forEach(windows.asMap()::putIfAbsent);
+
+        log.info("Transfer limit counters rebuilt for {} cards in {} ms",
+                loaded.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private Window load(UUID cardId, long nowHour) {
+        Window window = new Window();
+        jdbcTemplate.query(CARD_BUCKETS_QUERY, rows -> {
+            window.add(epochHour(rows.getTimestamp(1).toLocalDateTime()), toMinor(rows.getBigDecimal(2)), rows.getInt(3));
+        }, cardId, Timestamp.valueOf(windowStart(nowHour)));
+        return window;
+    }
+
+    private static LocalDateTime windowStart(long nowHour) {
+        long fromHour = (nowHour / HOURS - (DAYS - 1)) * HOURS;
+        return LocalDateTime.ofEpochSecond(fromHour * 3600, 0, ZoneOffset.UTC);
+    }
+
+    static long epochHour(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 3600;
+    }
+
+    private static long toMinor(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    private record Slot(long epoch, long amount, long count) {
+        Slot plus(long slotEpoch, long addAmount, long addCount) {
+            return slotEpoch == epoch
+                    ? new Slot(epoch, amount + addAmount, count + addCount)
+                    : slotEpoch > epoch ? new Slot(slotEpoch, addAmount, addCount) : this;
+        }
+    }
+
+    /**
+     * Кольцевые буферы слотов. Каждый слот неизменяемый и меняется через CAS, поэтому блокировок нет.
+     */
+    static final class Window {
+        private final AtomicReferenceArray<Slot> hours = new AtomicReferenceArray<>(HOURS);
+        private final AtomicReferenceArray<Slot> days = new AtomicReferenceArray<>(DAYS);
+
+        Window() {
+            Slot empty = new Slot(-1, 0, 0);
+            for (int i = 0; i < HOURS; i++) {
+                hours.set(i, empty);
+            }
+            for (int i = 0; i < DAYS; i++) {
+                days.set(i, empty);
+            }
+        }
+
+        void add(long hour, long amount, long count) {
+            long day = hour / HOURS;
+            hours.accumulateAndGet((int) (hour % HOURS), null, (slot, ignored) -> slot.plus(hour, amount, count));
+            days.accumulateAndGet((int) (day % DAYS), null, (slot, ignored) -> slot.plus(day, amount, count));
+        }
+
+        String exceeded(long hour, TransferLimitProperties.Limit limit) {
+            long day = hour / HOURS;
+            long dayAmount = 0, dayCount = 0, monthAmount = 0, monthCount = 0;
+
+            for (int i = 0; i < HOURS; i++) {
+                Slot slot = hours.get(i);
+                if (slot.epoch() > hour - HOURS && slot.epoch() <= hour) {
+                    dayAmount += slot.amount();
+                    dayCount += slot.count();
+                }
+            }
+            for (int i = 0; i < DAYS; i++) {
+                Slot slot = days.get(i);
+                if (slot.epoch() > day - DAYS && slot.epoch() <= day) {
+                    monthAmount += slot.amount();
+                    monthCount += slot.count();
+                }
+            }
+
+            if (limit.getDailyCount() != null && dayCount > limit.getDailyCount()) {
+                return "Daily count";
+            }
+            if (limit.getDailyAmount() != null && dayAmount > toMinor(limit.getDailyAmount())) {
+                return "Daily amount";
+            }
+            if (limit.getMonthlyCount() != null && monthCount > limit.getMonthlyCount()) {
+                return "Monthly count";
+            }
+            if (limit.getMonthlyAmount() != null && monthAmount > toMinor(limit.getMonthlyAmount())) {
+                return "Monthly amount";
+            }
+            return null;
+        }
+    }
+}
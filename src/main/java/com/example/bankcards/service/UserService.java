@@ -4,6 +4,7 @@ import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.ResourceNotFoundException;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.TokenVersionService;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,6 +22,7 @@ public class UserService {
     private final UserRepository userRepository;
     private final RoleService roleService;
     private final PasswordEncoder passwordEncoder;
+    private final TokenVersionService tokenVersionService;
 
     @Transactional
     public User createUser(String username, String password, String roleName) {
@@ -65,6 +67,7 @@ public class UserService {
     public void disableUser(UUID userId) {
         User user = findById(userId);
         user.setEnabled(false);
+        tokenVersionService.revokeAll(user);
         userRepository.save(user);
         log.info("Disabled user: {}", user.getUsername());
     }
@@ -75,6 +78,18 @@ public class UserService {
         User user = findById(userId);
         user.setEnabled(true);
         userRepository.save(user);
+        tokenVersionService.evict(user.getId());
         log.info("Enabled user: {}", user.getUsername());
     }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @Transactional
+    public User changeRole(UUID userId, String roleName) {
+        User user = findById(userId);
+        user.setRole(roleService.getRoleByName(roleName));
+        tokenVersionService.revokeAll(user);
+        userRepository.save(user);
+        log.info("Changed role of user {} to {}", user.getUsername(), roleName);
+        return user;
+    }
 }
@@ -1,40 +1,93 @@
 package com.example.bankcards.util;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.*;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.util.Base64;
-
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Шифрование и хэширование PAN. Ключ собирается один раз, Cipher и MessageDigest живут по одному
+ * на поток и только переинициализируются. Новые значения шифруются AES-GCM и начинаются с версии ключа:
+ * "v1:" + Base64(IV || шифротекст || тег). Значения без префикса записаны старым AES/ECB и по-прежнему читаются.
+ * Шифруется всегда текущим ключом, расшифровывается ключом той версии, что указана в префиксе: после ротации
+ * выведенные ключи остаются в связке, пока значения не перешифрованы.
+ */
 @Component
 @Slf4j
 public final class CardEncryptionUtil {
 
-    @Value("${app.security.encryption-key}")
-    private String encryptionKey;
-
-    public String encryptPan(String pan) {
+    private static final String GCM = "AES/GCM/NoPadding";
+    private static final String LEGACY_ECB = "AES/ECB/PKCS5Padding";
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    // До перехода на GCM был один ключ, он и стал версией 1
+    private static final int LEGACY_KEY_VERSION = 1;
+
+    private static final ThreadLocal<Cipher> GCM_CIPHER = ThreadLocal.withInitial(() -> cipher(GCM));
+    private static final ThreadLocal<Cipher> ECB_CIPHER = ThreadLocal.withInitial(() -> cipher(LEGACY_ECB));
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
         try {
-            Cipher chiper = Cipher.getInstance("AES");
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final Map<Integer, SecretKey> keyring;
+    private final SecretKey key;
+    private final String prefix;
+
+    /**
+     * @param retiredKeys выведенные ключи через запятую в виде "версия:ключ", например "1:old-key"
+     */
+    @Autowired
+    public CardEncryptionUtil(
+            @Value("${app.security.encryption-key}") String encryptionKey,
+            @Value("${app.security.encryption-key-version}") int keyVersion,
+            @Value("${app.security.retired-encryption-keys}") String retiredKeys
+    ) {
+        this(keyring(encryptionKey, keyVersion, retiredKeys), keyVersion);
+    }
 
-            SecretKey key = new SecretKeySpec(
-                    encryptionKey.getBytes(),
-                    0,
-                    32,
-                    "AES"
-            );
+    CardEncryptionUtil(Map<Integer, SecretKey> keyring, int keyVersion) {
+        if (!keyring.containsKey(keyVersion)) {
+            throw new IllegalArgumentException("Current encryption key version is missing from the keyring");
+        }
+        this.keyring = Map.copyOf(keyring);
+        this.key = keyring.get(keyVersion);
+        this.prefix = "v" + keyVersion + ":";
+    }
 
-            chiper.init(Cipher.ENCRYPT_MODE, key);
+    public String encryptPan(String pan) {
+        try {
+            byte[] plain = pan.getBytes(StandardCharsets.US_ASCII);
+            byte[] iv = new byte[IV_BYTES];
+            RANDOM.get().nextBytes(iv);
 
-            byte[] encryptedBytes = chiper.doFinal(pan.getBytes());
+            Cipher cipher = GCM_CIPHER.get();
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            byte[] out = new byte[IV_BYTES + cipher.getOutputSize(plain.length)];
+            System.arraycopy(iv, 0, out, 0, IV_BYTES);
+            cipher.doFinal(plain, 0, plain.length, out, IV_BYTES);
 
-            return Base64.getEncoder().encodeToString(encryptedBytes);
+            return prefix + Base64.getEncoder().encodeToString(out);
 
-        } catch (Exception e) {
+        } catch (GeneralSecurityException e) {
             log.error("Error encrypting PAN", e);
             throw new RuntimeException("Encryption failed", e);
         }
@@ -42,44 +95,86 @@ public final class CardEncryptionUtil {
 
     public String decryptPan(String encryptedPan) {
         try {
-            Cipher cipher = Cipher.getInstance("AES");
-
-            SecretKey key = new SecretKeySpec(
-                    encryptionKey.getBytes(), 0, 32, "AES"
-            );
-
-            cipher.init(Cipher.DECRYPT_MODE, key);
+            // В алфавите Base64 нет ':', так что значение без неё записано до перехода на GCM
+            int colon = encryptedPan.indexOf(':');
+            if (colon < 0) {
+                return decryptLegacy(encryptedPan);
+            }
+            if (encryptedPan.charAt(0) != 'v') {
+                throw new IllegalArgumentException("Unknown encryption key version");
+            }
+            SecretKey versionKey = keyFor(Integer.parseInt(encryptedPan, 1, colon, 10));
+
+            byte[] in = Base64.getDecoder().decode(encryptedPan.substring(colon + 1));
+            Cipher cipher = GCM_CIPHER.get();
+            cipher.init(Cipher.DECRYPT_MODE, versionKey, new GCMParameterSpec(TAG_BITS, in, 0, IV_BYTES));
+            byte[] plain = cipher.doFinal(in, IV_BYTES, in.length - IV_BYTES);
+
+            return new String(plain, StandardCharsets.US_ASCII);
+
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            log.error("Error decrypting PAN", e);
+            throw new RuntimeException("Decryption failed", e);
+        }
+    }
 
-            byte[] decodedBytes = Base64.getDecoder().decode(encryptedPan);
+    public String hashPan(String pan) {
+        byte[] hash = SHA_256.get().digest(pan.getBytes(StandardCharsets.US_ASCII));
+        return toHex(hash);
+    }
 
-            byte[] decryptedBytes = cipher.doFinal(decodedBytes);
+    private String decryptLegacy(String encryptedPan) throws GeneralSecurityException {
+        Cipher cipher = ECB_CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, keyFor(LEGACY_KEY_VERSION));
+        byte[] plain = cipher.doFinal(Base64.getDecoder().decode(encryptedPan));
+        return new String(plain, StandardCharsets.US_ASCII);
+    }
 
-            return new String(decryptedBytes);
+    private SecretKey keyFor(int version) {
+        SecretKey versionKey = keyring.get(version);
+        if (versionKey == null) {
+            throw new IllegalArgumentException("Unknown encryption key version");
+        }
+        return versionKey;
+    }
 
-        } catch (Exception e) {
-            log.error("Error decrypting PAN", e);
-            throw new RuntimeException("Decryption failed", e);
+    static Map<Integer, SecretKey> keyring(String encryptionKey, int keyVersion, String retiredKeys) {
+        Map<Integer, SecretKey> keys = new HashMap<>();
+        keys.put(keyVersion, aesKey(encryptionKey));
+        if (retiredKeys != null && !retiredKeys.isBlank()) {
+            for (String entry : retiredKeys.split(",")) {
+                int colon = entry.indexOf(':');
+                if (colon < 1) {
+                    throw new IllegalArgumentException("Retired encryption key must look like <version>:<key>");
+                }
+                int version = Integer.parseInt(entry.substring(0, colon).trim());
+                if (keys.putIfAbsent(version, aesKey(entry.substring(colon + 1).trim())) != null) {
+                    throw new IllegalArgumentException("Duplicate encryption key version: " + version);
+                }
+            }
         }
+        return keys;
     }
 
-    public String hashPan(String pan) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(pan.getBytes());
-            return bytesToHex(hash);
-        } catch (NoSuchAlgorithmException e) {
-            log.error("Error hashing PAN", e);
-            throw new RuntimeException("Hash failed", e);
+    // Первые 32 байта ключа, как и раньше: значения, зашифрованные до GCM, должны расшифровываться
+    static SecretKey aesKey(String encryptionKey) {
+        return new SecretKeySpec(encryptionKey.getBytes(StandardCharsets.UTF_8), 0, 32, "AES");
+    }
+
+    static String toHex(byte[] bytes) {
+        byte[] out = new byte[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[2 * i] = HEX[(bytes[i] >> 4) & 0x0F];
+            out[2 * i + 1] = HEX[bytes[i] & 0x0F];
         }
+        return new String(out, StandardCharsets.ISO_8859_1);
     }
 
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : bytes) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) hexString.append('0');
-            hexString.append(hex);
+    private static Cipher cipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(transformation + " is not available", e);
         }
-        return hexString.toString();
     }
 }
@@ -0,0 +1,79 @@
+package com.example.bankcards.util;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+
+/**
+ * Денежная сумма в копейках (масштаб колонок numeric(19,2)).
+ * Арифметика точная, на long без округлений; переполнение не проглатывается, а даёт ошибку.
+ */
+public record Money(long minor) implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0);
+
+    public static Money ofMinor(long minor) {
+        return minor == 0 ? ZERO : new Money(minor);
+    }
+
+    /**
+     * Точное преобразование без округления; null остаётся null, чтобы проверку обязательности делал вызывающий.
+     */
+    @JsonCreator
+    public static Money of(BigDecimal amount) {
+        if (amount == null) {
+            return null;
+        }
+        try {
+            return ofMinor(amount.setScale(SCALE).unscaledValue().longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount must have at most " + SCALE + " decimal places and fit into "
+                    + Long.MAX_VALUE + " minor units");
+        }
+    }
+
+    public Money plus(Money other) {
+        try {
+            return ofMinor(Math.addExact(minor, other.minor));
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Amount overflow");
+        }
+    }
+
+    public Money minus(Money other) {
+        try {
+            return ofMinor(Math.subtractExact(minor, other.minor));
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Amount overflow");
+        }
+    }
+
+    public boolean isPositive() {
+        return minor > 0;
+    }
+
+    public boolean isNegative() {
+        return minor < 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return minor < other.minor;
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minor, other.minor);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
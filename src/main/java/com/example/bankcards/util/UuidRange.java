@@ -0,0 +1,36 @@
+package com.example.bankcards.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Диапазон UUID с включёнными границами в порядке сравнения Postgres (побайтово, без знака).
+ */
+public record UuidRange(UUID lower, UUID upper) {
+
+    private static final int PREFIX_BITS = 16;
+    private static final int PREFIX_COUNT = 1 << PREFIX_BITS;
+
+    /**
+     * Делит всё пространство UUID на parts непересекающихся диапазонов по старшим 16 битам.
+     * Для случайных UUID (v4) диапазоны получаются примерно одинаковыми по числу строк.
+     */
+    public static List<UuidRange> split(int parts) {
+        if (parts < 1 || parts > PREFIX_COUNT) {
+            throw new IllegalArgumentException("Parts must be between 1 and " + PREFIX_COUNT);
+        }
+
+        List<UuidRange> ranges = new ArrayList<>(parts);
+        for (int i = 0; i < parts; i++) {
+            long from = (long) i * PREFIX_COUNT / parts;
+            long to = (long) (i + 1) * PREFIX_COUNT / parts;
+
+            UUID lower = new UUID(from << (64 - PREFIX_BITS), 0L);
+            // для последнего диапазона сдвиг переполняется в 0, и после вычитания получаются все единицы
+            UUID upper = new UUID((to << (64 - PREFIX_BITS)) - 1, -1L);
+            ranges.add(new UuidRange(lower, upper));
+        }
+        return ranges;
+    }
+}
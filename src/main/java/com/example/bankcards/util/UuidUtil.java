@@ -0,0 +1,39 @@
+package com.example.bankcards.util;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+public final class UuidUtil {
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private UuidUtil(){}
+
+    /**
+     * UUID версии 7: старшие 48 бит — время в миллисекундах, остальное — случайные биты.
+     * Такие идентификаторы растут монотонно, поэтому вставки ложатся в конец индекса первичного ключа.
+     */
+    public static UUID timeOrdered() {
+        long millis = System.currentTimeMillis();
+        long randA = random.nextInt(1 << 12);
+        long randB = random.nextLong();
+
+        long msb = (millis << 16) | (0x7L << 12) | randA;
+        long lsb = (randB & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Время создания из UUID версии 7 в часовом поясе приложения или null для других версий.
+     */
+    public static LocalDateTime timestampOf(UUID uuid) {
+        if (uuid.version() != 7) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(uuid.getMostSignificantBits() >>> 16), ZoneId.systemDefault());
+    }
+}
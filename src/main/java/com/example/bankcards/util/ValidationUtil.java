@@ -3,7 +3,6 @@ package com.example.bankcards.util;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.time.YearMonth;
 
 @Component
@@ -26,7 +25,7 @@ public final class ValidationUtil {
         return month >= 1 && month <= 12 && year >= 2024 && year <= 2099;
     }
 
-    public boolean isValidAmount(BigDecimal amount) {
-        return amount != null && amount.compareTo(BigDecimal.ZERO) > 0;
+    public boolean isValidAmount(Money amount) {
+        return amount != null && amount.isPositive();
     }
 }
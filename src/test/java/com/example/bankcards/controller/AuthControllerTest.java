@@ -1,12 +1,19 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.AuthRequestDto;
+import com.example.bankcards.dto.RefreshRequestDto;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.GlobalExceptionHandler;
+import com.example.bankcards.exception.LoginThrottledException;
+import com.example.bankcards.security.AuthenticatedUser;
 import com.example.bankcards.security.JwtService;
+import com.example.bankcards.security.LoginService;
+import com.example.bankcards.security.RefreshTokenService;
+import com.example.bankcards.security.TokenRevocationService;
 import com.example.bankcards.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,21 +21,25 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -39,7 +50,13 @@ class AuthControllerTest {
     private ObjectMapper objectMapper = new ObjectMapper();
 
     @Mock
-    private AuthenticationManager authenticationManager;
+    private LoginService loginService;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
 
     @Mock
     private JwtService jwtService;
@@ -53,7 +70,6 @@ class AuthControllerTest {
     private AuthRequestDto validAuthRequest;
     private User testUser;
     private Role userRole;
-    private Authentication authentication;
     private UUID userId;
     private UUID roleId;
 
@@ -61,8 +77,11 @@ class AuthControllerTest {
     void setUp() {
         mockMvc = MockMvcBuilders.standaloneSetup(authController)
                 .setControllerAdvice(new GlobalExceptionHandler())
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
                 .build();
 
+        lenient().when(loginService.completionExecutor()).thenReturn(Runnable::run);
+
         userId = UUID.randomUUID();
         roleId = UUID.randomUUID();
 
@@ -76,12 +95,11 @@ class AuthControllerTest {
         testUser.setId(userId);
         testUser.setUsername("testuser");
         testUser.setRole(userRole);
+    }
 
-        authentication = new UsernamePasswordAuthenticationToken(
-                "testuser",
-                "password123",
-                List.of(new SimpleGrantedAuthority("ROLE_USER"))
-        );
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
     }
 
     @Test
@@ -134,29 +152,93 @@ class AuthControllerTest {
     void login_WithValidCredentials_ShouldReturnJwtToken() throws Exception {
         String expectedToken = "jwt.token.here";
 
-        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                .thenReturn(authentication);
-        when(jwtService.generateToken(validAuthRequest.username(), List.of("ROLE_USER")))
-                .thenReturn(expectedToken);
+        when(loginService.authenticate("testuser", "password123", "127.0.0.1"))
+                .thenReturn(CompletableFuture.completedFuture(testUser));
+        when(jwtService.generateToken(testUser)).thenReturn(expectedToken);
+        when(refreshTokenService.issue(testUser)).thenReturn("refresh-token");
 
-        mockMvc.perform(post("/auth/login")
+        MvcResult result = mockMvc.perform(post("/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(validAuthRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value(expectedToken))
+                .andExpect(jsonPath("$.refreshToken").value("refresh-token"));
+    }
+
+    @Test
+    void refresh_WithValidToken_ShouldReturnNewTokenPair() throws Exception {
+        when(refreshTokenService.rotate("old-refresh"))
+                .thenReturn(new RefreshTokenService.Rotation(testUser, "new-refresh"));
+        when(jwtService.generateToken(testUser)).thenReturn("jwt.token.here");
+
+        mockMvc.perform(post("/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshRequestDto("old-refresh"))))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.token").value(expectedToken));
+                .andExpect(jsonPath("$.token").value("jwt.token.here"))
+                .andExpect(jsonPath("$.refreshToken").value("new-refresh"));
+
+        verifyNoInteractions(loginService);
+    }
+
+    @Test
+    void refresh_WithReusedToken_ShouldReturnUnauthorized() throws Exception {
+        when(refreshTokenService.rotate("old-refresh"))
+                .thenThrow(new BadCredentialsException("Refresh token reuse detected"));
+
+        mockMvc.perform(post("/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshRequestDto("old-refresh"))))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(jwtService);
     }
 
     @Test
     void login_WithInvalidCredentials_ShouldReturnUnauthorized() throws Exception {
-        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                .thenThrow(new BadCredentialsException("Invalid credentials"));
+        when(loginService.authenticate("testuser", "password123", "127.0.0.1"))
+                .thenReturn(CompletableFuture.failedFuture(new BadCredentialsException("Invalid credentials")));
 
-        mockMvc.perform(post("/auth/login")
+        MvcResult result = mockMvc.perform(post("/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(validAuthRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    void login_WhenLoginPoolIsFull_ShouldReturnServiceUnavailable() throws Exception {
+        when(loginService.authenticate("testuser", "password123", "127.0.0.1"))
+                .thenThrow(new RejectedExecutionException("queue is full"));
+
+        mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(validAuthRequest)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+
+        verifyNoInteractions(jwtService);
+    }
+
+    @Test
+    void login_WhenThrottled_ShouldReturnTooManyRequests() throws Exception {
+        when(loginService.authenticate("testuser", "password123", "127.0.0.1"))
+                .thenThrow(new LoginThrottledException(2500));
+
+        mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(validAuthRequest)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "3"));
+    }
+
     @Test
     void login_WithEmptyUsername_ShouldReturnBadRequest() throws Exception {
         AuthRequestDto invalidRequest = new AuthRequestDto("", "password123");
@@ -168,28 +250,22 @@ class AuthControllerTest {
     }
 
     @Test
-    void login_WithMultipleRoles_ShouldGenerateTokenWithAllRoles() throws Exception {
-        String expectedToken = "jwt.token.here";
-
-        Authentication multiRoleAuth = new UsernamePasswordAuthenticationToken(
-                "testuser",
-                "password123",
-                List.of(
-                        new SimpleGrantedAuthority("ROLE_USER"),
-                        new SimpleGrantedAuthority("ROLE_ADMIN")
-                )
-        );
+    void login_ShouldIssueTokenForCurrentTokenVersion() throws Exception {
+        testUser.setTokenVersion(3);
 
-        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                .thenReturn(multiRoleAuth);
-        when(jwtService.generateToken(validAuthRequest.username(), List.of("ROLE_USER", "ROLE_ADMIN")))
-                .thenReturn(expectedToken);
+        when(loginService.authenticate("testuser", "password123", "127.0.0.1"))
+                .thenReturn(CompletableFuture.completedFuture(testUser));
+        when(jwtService.generateToken(any(User.class))).thenReturn("jwt.token.here");
 
-        mockMvc.perform(post("/auth/login")
+        MvcResult result = mockMvc.perform(post("/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(validAuthRequest)))
-                .andExpect(status().isOk())
-                .andExpect(jsonPath("$.token").value(expectedToken));
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        verify(jwtService).generateToken(argThat(user -> user.getId().equals(userId) && user.getTokenVersion() == 3));
     }
 
     @Test
@@ -206,4 +282,20 @@ class AuthControllerTest {
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.id").value(customUserId.toString()));
     }
-}
\ No newline at end of file
+
+    @Test
+    void logout_ShouldRevokeCurrentTokenAndRefreshFamily() throws Exception {
+        AuthenticatedUser principal = new AuthenticatedUser(userId, "testuser", "ROLE_USER", 0,
+                UUID.randomUUID(), Instant.now().plusSeconds(600));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+
+        mockMvc.perform(post("/auth/logout")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshRequestDto("refresh-token"))))
+                .andExpect(status().isNoContent());
+
+        verify(tokenRevocationService).revoke(principal);
+        verify(refreshTokenService).revoke("refresh-token");
+    }
+}
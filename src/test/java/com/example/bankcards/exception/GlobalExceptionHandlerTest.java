@@ -0,0 +1,48 @@
+package com.example.bankcards.exception;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("GlobalExceptionHandler Unit Tests")
+class GlobalExceptionHandlerTest {
+
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+    @Test
+    @DisplayName("handleConflict - гонка по Idempotency-Key должна давать 409 про повтор запроса")
+    void handleConflict_WithIdempotencyConstraint_ShouldReportDuplicateRequest() {
+
+        DataIntegrityViolationException ex = violation(
+                "ERROR: duplicate key value violates unique constraint \"pk_transfer_idempotency_keys\"");
+
+        ResponseEntity<Map<String, Object>> response = handler.handleConflict(ex);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(response.getBody()).containsEntry("message", "Request with this idempotency key is already being processed");
+    }
+
+    @Test
+    @DisplayName("handleConflict - прочие нарушения целостности не должны выдаваться за параллельный запрос")
+    void handleConflict_WithOtherConstraint_ShouldNotClaimConcurrency() {
+
+        DataIntegrityViolationException ex = violation(
+                "ERROR: insert or update on table \"card_deposits\" violates foreign key constraint \"fk_card_deposits_card\"");
+
+        ResponseEntity<Map<String, Object>> response = handler.handleConflict(ex);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(response.getBody()).containsEntry("message", "Request violates a data integrity constraint");
+    }
+
+    private static DataIntegrityViolationException violation(String sqlMessage) {
+        return new DataIntegrityViolationException("could not execute statement", new SQLException(sqlMessage, "23505"));
+    }
+}
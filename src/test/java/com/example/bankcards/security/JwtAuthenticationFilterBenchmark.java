@@ -0,0 +1,92 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.RevokedTokenRepository;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * Пропускная способность JwtAuthenticationFilter.doFilterInternal.
+ * cold — кэш проверенных токенов выключен, каждый запрос разбирает JSON и считает HMAC;
+ * warm — токены уже проверены и берутся из кэша по SHA-256.
+ * Версии токенов в обоих вариантах уже в кэше TokenVersionService, отозванных токенов нет, БД не участвует.
+ *
+ * Запуск: mvn -Pbenchmark test-compile exec:exec -Djmh.args="JwtAuthenticationFilterBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark";
+    private static final int TOKENS = 1024;
+    private static final FilterChain NO_OP = (request, response) -> { };
+
+    @Param({"cold", "warm"})
+    public String cache;
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest[] requests;
+    private MockHttpServletResponse response;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        JwtService jwtService = new JwtService(SECRET, 60, "warm".equals(cache) ? TOKENS : 0);
+
+        UserRepository userRepository = Mockito.mock(UserRepository.class);
+        Mockito.when(userRepository.findActiveTokenVersion(any())).thenReturn(Optional.of(0));
+        TokenVersionService tokenVersionService = new TokenVersionService(userRepository, TOKENS, 3600);
+
+        TokenRevocationService tokenRevocationService = new TokenRevocationService(
+                Mockito.mock(RevokedTokenRepository.class), new SimpleMeterRegistry(), TOKENS, 0.01);
+
+        filter = new JwtAuthenticationFilter(jwtService, tokenVersionService, tokenRevocationService);
+
+        Role role = new Role();
+        role.setName("ROLE_USER");
+
+        requests = new MockHttpServletRequest[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            User user = new User();
+            user.setId(UUID.randomUUID());
+            user.setUsername("user" + i);
+            user.setRole(role);
+
+            requests[i] = new MockHttpServletRequest("GET", "/cards");
+            requests[i].addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + jwtService.generateToken(user));
+            // Прогреваем кэш версий и, в варианте warm, кэш токенов
+            filter.doFilterInternal(requests[i], new MockHttpServletResponse(), NO_OP);
+            SecurityContextHolder.clearContext();
+        }
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object doFilterInternal() throws Exception {
+        MockHttpServletRequest request = requests[next];
+        next = (next + 1) & (TOKENS - 1);
+
+        filter.doFilterInternal(request, response, NO_OP);
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+}
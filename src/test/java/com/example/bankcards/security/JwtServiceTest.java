@@ -0,0 +1,85 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("JwtService Unit Tests")
+class JwtServiceTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-42";
+
+    private final JwtService jwtService = new JwtService(SECRET, 60, 100);
+
+    @Test
+    @DisplayName("toAuthenticatedUser - должен восстановить ID, роль, версию и jti токена из claims")
+    void toAuthenticatedUser_ShouldReadClaims() {
+
+        Role role = new Role();
+        role.setName("ROLE_ADMIN");
+
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setUsername("admin");
+        user.setRole(role);
+        user.setTokenVersion(7);
+
+        String token = jwtService.generateToken(user);
+        AuthenticatedUser principal = jwtService.toAuthenticatedUser(jwtService.parse(token).getPayload());
+
+        assertThat(principal.id()).isEqualTo(user.getId());
+        assertThat(principal.role()).isEqualTo("ROLE_ADMIN");
+        assertThat(principal.tokenVersion()).isEqualTo(7);
+        assertThat(principal.getName()).isEqualTo("admin");
+        assertThat(principal.expiresAt()).isAfter(Instant.now());
+
+        // У каждого выпущенного токена свой jti, чтобы выход отзывал только его
+        AuthenticatedUser second = jwtService.toAuthenticatedUser(jwtService.parse(jwtService.generateToken(user)).getPayload());
+        assertThat(principal.tokenId()).isNotNull().isNotEqualTo(second.tokenId());
+    }
+
+    @Test
+    @DisplayName("toAuthenticatedUser - не должен принимать токены старого формата без uid и tv")
+    void toAuthenticatedUser_ShouldRejectLegacyToken() {
+
+        String legacy = Jwts.builder()
+                .subject("testuser")
+                .claim("roles", List.of("ROLE_USER"))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+
+        assertThat(jwtService.toAuthenticatedUser(jwtService.parse(legacy).getPayload())).isNull();
+    }
+
+    @Test
+    @DisplayName("verify - должен вернуть закэшированные claims для повторного токена и отклонить подделанный")
+    void verify_ShouldCacheVerifiedTokens() {
+
+        Role role = new Role();
+        role.setName("ROLE_USER");
+
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setUsername("testuser");
+        user.setRole(role);
+
+        String token = jwtService.generateToken(user);
+
+        assertThat(jwtService.verify(token)).isSameAs(jwtService.verify(token));
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        assertThatThrownBy(() -> jwtService.verify(tampered)).isInstanceOf(JwtException.class);
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.LoginThrottledException;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("LoginService Unit Tests")
+class LoginServiceTest {
+
+    private static final int STRENGTH = 4;
+    private static final String IP = "10.0.0.1";
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(STRENGTH);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LoginThrottle loginThrottle = new LoginThrottle(true, 1024, 2, 100, 3, 60_000, 900, 600);
+    private LoginService loginService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        loginService = new LoginService(userRepository, encoder, loginThrottle, meterRegistry, STRENGTH, 1, 1, 1);
+
+        user = new User();
+        user.setId(UUID.randomUUID());
+        user.setUsername("testuser");
+        user.setPasswordHash(encoder.encode("password123"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        loginService.shutdown();
+    }
+
+    @Test
+    @DisplayName("authenticate - должен вернуть пользователя при верном пароле без перехэширования")
+    void authenticate_WithValidPassword_ShouldReturnUser() throws Exception {
+
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        User result = loginService.authenticate("testuser", "password123", IP).get(5, TimeUnit.SECONDS);
+
+        assertThat(result).isSameAs(user);
+        verify(userRepository, never()).updatePasswordHash(any(), any(), any());
+        assertThat(meterRegistry.get("bank.login.queue.wait").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("bank.login.hash").tag("outcome", "success").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("authenticate - должен перехэшировать пароль, если стоимость отличается от настроенной")
+    void authenticate_WithDifferentCost_ShouldRehash() throws Exception {
+
+        String oldHash = new BCryptPasswordEncoder(5).encode("password123");
+        user.setPasswordHash(oldHash);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        when(userRepository.updatePasswordHash(eq(user.getId()), eq(oldHash), anyString())).thenReturn(1);
+
+        loginService.authenticate("testuser", "password123", IP).get(5, TimeUnit.SECONDS);
+
+        assertThat(user.getPasswordHash()).startsWith("$2a$04$");
+        assertThat(encoder.matches("password123", user.getPasswordHash())).isTrue();
+        assertThat(meterRegistry.get("bank.login.rehash").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("authenticate - неверный пароль и неизвестный логин дают одинаковую ошибку")
+    void authenticate_WithBadCredentials_ShouldFail() {
+
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        CompletableFuture<User> badPassword = loginService.authenticate("testuser", "wrong", IP);
+        assertThatThrownBy(() -> badPassword.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(BadCredentialsException.class);
+
+        CompletableFuture<User> unknownUser = loginService.authenticate("ghost", "password123", IP);
+        assertThatThrownBy(() -> unknownUser.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(BadCredentialsException.class);
+
+        assertThat(meterRegistry.get("bank.login.hash").tag("outcome", "unknown_user").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("bank.login.hash").tag("outcome", "bad_password").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("authenticate - после серии ошибок должен отклонять попытки без обращения к БД и BCrypt")
+    void authenticate_AfterRepeatedFailures_ShouldThrottle() {
+
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        for (int i = 0; i < 2; i++) {
+            CompletableFuture<User> attempt = loginService.authenticate("testuser", "wrong", IP);
+            assertThatThrownBy(() -> attempt.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        }
+
+        assertThatThrownBy(() -> loginService.authenticate("testuser", "password123", IP))
+                .isInstanceOf(LoginThrottledException.class);
+
+        verify(userRepository, times(2)).findByUsername("testuser");
+        assertThat(meterRegistry.get("bank.login.throttled").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("authenticate - отключённый пользователь не входит")
+    void authenticate_WithDisabledUser_ShouldFail() {
+
+        user.setEnabled(false);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        CompletableFuture<User> result = loginService.authenticate("testuser", "password123", IP);
+
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(DisabledException.class);
+    }
+
+    @Test
+    @DisplayName("authenticate - при заполненной очереди должен отклонить запрос сразу")
+    void authenticate_WhenQueueIsFull_ShouldReject() throws Exception {
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BCryptPasswordEncoder blockingEncoder = new BCryptPasswordEncoder(STRENGTH) {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.matches(rawPassword, encodedPassword);
+            }
+        };
+        loginService.shutdown();
+        loginService = new LoginService(userRepository, blockingEncoder, loginThrottle, meterRegistry, STRENGTH, 1, 1, 1);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        CompletableFuture<User> running = loginService.authenticate("testuser", "password123", IP);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<User> queued = loginService.authenticate("testuser", "password123", IP);
+
+        assertThatThrownBy(() -> loginService.authenticate("testuser", "password123", IP))
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThat(meterRegistry.get("bank.login.rejected").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isSameAs(user);
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isSameAs(user);
+    }
+
+    @Test
+    @DisplayName("authenticate - пользователь читается до пула, а перехэширование пишется вне пула BCrypt")
+    void authenticate_ShouldKeepDatabaseWorkOffHashingPool() throws Exception {
+
+        String oldHash = new BCryptPasswordEncoder(5).encode("password123");
+        user.setPasswordHash(oldHash);
+        String caller = Thread.currentThread().getName();
+        AtomicReference<String> lookupThread = new AtomicReference<>();
+        AtomicReference<String> updateThread = new AtomicReference<>();
+        when(userRepository.findByUsername("testuser")).thenAnswer(inv -> {
+            lookupThread.set(Thread.currentThread().getName());
+            return Optional.of(user);
+        });
+        when(userRepository.updatePasswordHash(eq(user.getId()), eq(oldHash), anyString())).thenAnswer(inv -> {
+            updateThread.set(Thread.currentThread().getName());
+            return 1;
+        });
+
+        loginService.authenticate("testuser", "password123", IP).get(5, TimeUnit.SECONDS);
+
+        assertThat(lookupThread.get()).isEqualTo(caller);
+        assertThat(updateThread.get()).startsWith("login-complete-");
+    }
+}
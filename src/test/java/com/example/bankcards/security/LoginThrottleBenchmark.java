@@ -0,0 +1,45 @@
+package com.example.bankcards.security;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена отклонённой попытки входа: проверка LoginThrottle против BCrypt с боевой стоимостью 10,
+ * которую та же попытка стоила бы без троттлинга.
+ *
+ * Запуск: mvn -Pbenchmark test-compile exec:exec -Djmh.args="LoginThrottleBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoginThrottleBenchmark {
+
+    private LoginThrottle throttle;
+    private BCryptPasswordEncoder encoder;
+    private String hash;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        throttle = new LoginThrottle(true, 65536, 5, 30, 6, 1000, 900, 600);
+        for (int i = 0; i < 20; i++) {
+            throttle.onFailure("victim", "10.0.0.1");
+        }
+        encoder = new BCryptPasswordEncoder(10);
+        hash = encoder.encode("password123");
+    }
+
+    @Benchmark
+    public long throttledCheck() {
+        return throttle.check("victim", "10.0.0.1");
+    }
+
+    @Benchmark
+    public boolean bcryptVerify() {
+        return encoder.matches("wrong-password", hash);
+    }
+}
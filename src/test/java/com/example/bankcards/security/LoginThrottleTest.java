@@ -0,0 +1,85 @@
+package com.example.bankcards.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("LoginThrottle Unit Tests")
+class LoginThrottleTest {
+
+    // Тик 100 мс: 10 тиков = 1 секунда
+    private static final long SECOND = 10;
+
+    private LoginThrottle throttle;
+
+    @BeforeEach
+    void setUp() {
+        // 3 бесплатные попытки на логин, 10 на IP, задержка от 1 с, блокировка после 4 лишних на 60 с, полураспад 10 мин
+        throttle = new LoginThrottle(true, 1024, 3, 10, 4, 1000, 60, 600);
+    }
+
+    @Test
+    @DisplayName("check - задержка растёт экспоненциально и переходит в блокировку")
+    void check_ShouldThrottleExponentiallyThenLockOut() {
+        long now = 1000;
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(throttle.check("alice", "10.0.0.1", now)).isZero();
+            throttle.onFailure("alice", "10.0.0.1", now);
+        }
+
+        assertThat(throttle.check("alice", "10.0.0.1", now)).isEqualTo(1000);
+        assertThat(throttle.check("alice", "10.0.0.1", now + SECOND)).isZero();
+
+        throttle.onFailure("alice", "10.0.0.1", now + SECOND);
+        assertThat(throttle.check("alice", "10.0.0.1", now + SECOND)).isEqualTo(2000);
+
+        throttle.onFailure("alice", "10.0.0.1", now + 3 * SECOND);
+        throttle.onFailure("alice", "10.0.0.1", now + 3 * SECOND);
+        throttle.onFailure("alice", "10.0.0.1", now + 3 * SECOND);
+        assertThat(throttle.check("alice", "10.0.0.1", now + 3 * SECOND)).isEqualTo(60_000);
+
+        // Другой логин с другого адреса не затронут
+        assertThat(throttle.check("bob", "10.0.0.2", now + 3 * SECOND)).isZero();
+    }
+
+    @Test
+    @DisplayName("check - счётчик IP срабатывает при переборе разных логинов")
+    void check_ShouldThrottleByIpAcrossUsernames() {
+        long now = 1000;
+
+        for (int i = 0; i < 10; i++) {
+            throttle.onFailure("user" + i, "10.0.0.1", now);
+        }
+
+        assertThat(throttle.check("someone-else", "10.0.0.1", now)).isPositive();
+        assertThat(throttle.check("someone-else", "10.0.0.2", now)).isZero();
+    }
+
+    @Test
+    @DisplayName("decayed - число ошибок уменьшается вдвое за период полураспада")
+    void decayed_ShouldHalveEveryHalfLife() {
+        long slot = LoginThrottle.pack(100, 8);
+
+        assertThat(throttle.decayed(slot, 100)).isEqualTo(8);
+        assertThat(throttle.decayed(slot, 100 + 600 * SECOND)).isEqualTo(4);
+        assertThat(throttle.decayed(slot, 100 + 1800 * SECOND)).isEqualTo(1);
+        assertThat(throttle.decayed(slot, 100 + 100_000 * SECOND)).isZero();
+    }
+
+    @Test
+    @DisplayName("onSuccess - сбрасывает счётчик логина, но не IP")
+    void onSuccess_ShouldResetUsernameOnly() {
+        long now = 1000;
+        for (int i = 0; i < 10; i++) {
+            throttle.onFailure("alice", "10.0.0.1", now);
+        }
+
+        throttle.onSuccess("alice");
+
+        assertThat(throttle.check("alice", "10.0.0.2", now)).isZero();
+        assertThat(throttle.check("alice", "10.0.0.1", now)).isPositive();
+    }
+}
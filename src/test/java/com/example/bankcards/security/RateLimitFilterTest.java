@@ -0,0 +1,104 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.RateLimitProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("RateLimitFilter Unit Tests")
+class RateLimitFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties.Group transfers = new RateLimitProperties.Group();
+        transfers.setPaths(List.of("/transfers", "/transfers/**"));
+        transfers.setMethods(List.of("POST"));
+        transfers.setCapacity(2);
+        transfers.setRefillPerSecond(0.1);
+
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getGroups().put("transfers", transfers);
+
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RateLimitFilter(properties, new ObjectMapper(), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("doFilter - после исчерпания ведра должен вернуть 429 с Retry-After")
+    void doFilter_ShouldRejectWhenBucketIsEmpty() throws Exception {
+
+        authenticate("alice");
+
+        assertThat(call("POST", "/transfers").getStatus()).isEqualTo(200);
+        assertThat(call("POST", "/transfers/batch").getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse rejected = call("POST", "/transfers");
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(Long.parseLong(rejected.getHeader("Retry-After"))).isBetween(1L, 10L);
+        assertThat(rejected.getContentAsString()).contains("TOO_MANY_REQUESTS");
+        assertThat(meterRegistry.counter("bank.ratelimit.rejected", "group", "transfers").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("doFilter - ведра должны быть раздельными для пользователей и не касаться других эндпоинтов")
+    void doFilter_ShouldKeepBucketsPerUserAndGroup() throws Exception {
+
+        authenticate("alice");
+        call("POST", "/transfers");
+        call("POST", "/transfers");
+        assertThat(call("GET", "/transfers/123").getStatus()).isEqualTo(200);
+        assertThat(call("POST", "/cards/123/block").getStatus()).isEqualTo(200);
+
+        authenticate("bob");
+        assertThat(call("POST", "/transfers").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("acquire - токены должны восполняться со временем")
+    void acquire_ShouldRefillOverTime() {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/transfers");
+        request.setServletPath("/transfers");
+        RateLimitFilter.Group group = filter.match(request);
+        RateLimitFilter.Key key = new RateLimitFilter.Key("alice", group.name());
+
+        long now = 1_000_000_000_000L;
+        assertThat(filter.acquire(key, group, now)).isZero();
+        assertThat(filter.acquire(key, group, now)).isZero();
+        assertThat(filter.acquire(key, group, now)).isEqualTo(group.interval());
+        assertThat(filter.acquire(key, group, now + group.interval())).isZero();
+    }
+
+    private void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    private MockHttpServletResponse call(String method, String path) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("RefreshTokenService Unit Tests")
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private RefreshTokenService refreshTokenService;
+    private User user;
+    private RefreshToken stored;
+    private final String rawToken = "raw-refresh-token";
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, 30);
+
+        user = new User();
+        user.setId(UUID.randomUUID());
+
+        stored = new RefreshToken();
+        stored.setId(UUID.randomUUID());
+        stored.setUser(user);
+        stored.setFamilyId(UUID.randomUUID());
+        stored.setTokenHash(RefreshTokenService.hash(rawToken));
+        stored.setExpiresAt(LocalDateTime.now().plusDays(1));
+    }
+
+    @Test
+    @DisplayName("issue - должен сохранить только хэш токена в новой цепочке")
+    void issue_ShouldStoreHashOnly() {
+
+        String token = refreshTokenService.issue(user);
+
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(captor.capture());
+        RefreshToken saved = captor.getValue();
+
+        assertThat(saved.getTokenHash()).isEqualTo(RefreshTokenService.hash(token)).isNotEqualTo(token);
+        assertThat(saved.getFamilyId()).isNotNull();
+        assertThat(saved.getExpiresAt()).isAfter(LocalDateTime.now().plusDays(29));
+    }
+
+    @Test
+    @DisplayName("rotate - должен заменить токен на новый в той же цепочке")
+    void rotate_ShouldIssueNextTokenInFamily() {
+
+        when(refreshTokenRepository.findByTokenHash(stored.getTokenHash())).thenReturn(Optional.of(stored));
+        when(refreshTokenRepository.markRotated(eq(stored.getId()), any())).thenReturn(1);
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(rawToken);
+
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(captor.capture());
+
+        assertThat(rotation.user()).isSameAs(user);
+        assertThat(rotation.refreshToken()).isNotEqualTo(rawToken);
+        assertThat(captor.getValue().getFamilyId()).isEqualTo(stored.getFamilyId());
+        verify(refreshTokenRepository, never()).revokeFamily(any());
+    }
+
+    @Test
+    @DisplayName("rotate - повторное использование заменённого токена отзывает всю цепочку")
+    void rotate_WithRotatedToken_ShouldRevokeFamily() {
+
+        stored.setRotatedAt(LocalDateTime.now().minusMinutes(5));
+        when(refreshTokenRepository.findByTokenHash(stored.getTokenHash())).thenReturn(Optional.of(stored));
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(rawToken))
+                .isInstanceOf(BadCredentialsException.class);
+
+        verify(refreshTokenRepository).revokeFamily(stored.getFamilyId());
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("rotate - проигравший гонку параллельный запрос считается повторным использованием")
+    void rotate_WhenConcurrentlyRotated_ShouldRevokeFamily() {
+
+        when(refreshTokenRepository.findByTokenHash(stored.getTokenHash())).thenReturn(Optional.of(stored));
+        when(refreshTokenRepository.markRotated(eq(stored.getId()), any())).thenReturn(0);
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(rawToken))
+                .isInstanceOf(BadCredentialsException.class);
+
+        verify(refreshTokenRepository).revokeFamily(stored.getFamilyId());
+    }
+
+    @Test
+    @DisplayName("rotate - просроченный токен и отключённый пользователь отклоняются")
+    void rotate_WithExpiredTokenOrDisabledUser_ShouldFail() {
+
+        when(refreshTokenRepository.findByTokenHash(stored.getTokenHash())).thenReturn(Optional.of(stored));
+
+        stored.setExpiresAt(LocalDateTime.now().minusSeconds(1));
+        assertThatThrownBy(() -> refreshTokenService.rotate(rawToken))
+                .isInstanceOf(BadCredentialsException.class);
+
+        stored.setExpiresAt(LocalDateTime.now().plusDays(1));
+        user.setEnabled(false);
+        assertThatThrownBy(() -> refreshTokenService.rotate(rawToken))
+                .isInstanceOf(DisabledException.class);
+
+        verify(refreshTokenRepository, never()).markRotated(any(), any());
+        verify(refreshTokenRepository, never()).revokeFamily(any());
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TokenRevocationService Unit Tests")
+class TokenRevocationServiceTest {
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        tokenRevocationService = new TokenRevocationService(revokedTokenRepository, meterRegistry, 1000, 0.01);
+    }
+
+    @Test
+    @DisplayName("isRevoked - неотозванный токен проверяется без обращения к БД")
+    void isRevoked_WhenNotInFilter_ShouldNotQueryDatabase() {
+
+        for (int i = 0; i < 1000; i++) {
+            tokenRevocationService.isRevoked(UUID.randomUUID());
+        }
+
+        verify(revokedTokenRepository, atMost(50)).existsById(any());
+    }
+
+    @Test
+    @DisplayName("revoke - отозванный токен подтверждается по таблице")
+    void revoke_ShouldConfirmFilterHitInDatabase() {
+
+        UUID jti = UUID.randomUUID();
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+        when(revokedTokenRepository.existsById(jti)).thenReturn(true);
+
+        tokenRevocationService.revoke(jti, expiresAt);
+
+        assertThat(tokenRevocationService.isRevoked(jti)).isTrue();
+        verify(revokedTokenRepository).revoke(jti, expiresAt);
+        assertThat(meterRegistry.get("bank.revocation.bloom.hit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("rebuild и sync - должны загрузить отозванные токены из таблицы")
+    void rebuildAndSync_ShouldLoadRevokedTokens() {
+
+        UUID atStartup = UUID.randomUUID();
+        UUID fromOtherNode = UUID.randomUUID();
+        when(revokedTokenRepository.findActiveJtis(any())).thenReturn(List.of(atStartup));
+        when(revokedTokenRepository.findJtisRevokedSince(any(), any())).thenReturn(List.of(fromOtherNode));
+        when(revokedTokenRepository.existsById(atStartup)).thenReturn(true);
+        when(revokedTokenRepository.existsById(fromOtherNode)).thenReturn(true);
+
+        tokenRevocationService.rebuild();
+        assertThat(tokenRevocationService.isRevoked(atStartup)).isTrue();
+
+        tokenRevocationService.sync();
+        assertThat(tokenRevocationService.isRevoked(fromOtherNode)).isTrue();
+    }
+
+    @Test
+    @DisplayName("cleanup - должен удалить истёкшие строки и пересобрать фильтр без них")
+    void cleanup_ShouldDeleteExpiredAndRebuild() {
+
+        UUID expired = UUID.randomUUID();
+        tokenRevocationService.revoke(expired, LocalDateTime.now().minusMinutes(1));
+        when(revokedTokenRepository.findActiveJtis(any())).thenReturn(List.of());
+
+        tokenRevocationService.cleanup();
+
+        verify(revokedTokenRepository).deleteExpired(any());
+        assertThat(tokenRevocationService.isRevoked(expired)).isFalse();
+        verify(revokedTokenRepository, never()).existsById(eq(expired));
+    }
+
+    @Test
+    @DisplayName("BloomFilter - не пропускает добавленные элементы и держит долю ложных срабатываний")
+    void bloomFilter_ShouldHaveNoFalseNegatives() {
+
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        List<UUID> added = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            UUID id = UUID.randomUUID();
+            filter.add(id);
+            added.add(id);
+        }
+
+        assertThat(added).allMatch(filter::mightContain);
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID())) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(2_000);
+        assertThat(filter.hashes()).isEqualTo(7);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TokenVersionService Unit Tests")
+class TokenVersionServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private TokenVersionService tokenVersionService;
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        tokenVersionService = new TokenVersionService(userRepository, 100, 60);
+    }
+
+    @Test
+    @DisplayName("isCurrent - должен читать версию из БД только при промахе кэша")
+    void isCurrent_ShouldCacheVersion() {
+
+        when(userRepository.findActiveTokenVersion(userId)).thenReturn(Optional.of(2));
+
+        assertThat(tokenVersionService.isCurrent(userId, 2)).isTrue();
+        assertThat(tokenVersionService.isCurrent(userId, 1)).isFalse();
+        assertThat(tokenVersionService.isCurrent(userId, 2)).isTrue();
+
+        verify(userRepository, times(1)).findActiveTokenVersion(userId);
+    }
+
+    @Test
+    @DisplayName("revokeAll - должен увеличить версию и сразу отклонять старые токены")
+    void revokeAll_ShouldInvalidateIssuedTokens() {
+
+        User user = new User();
+        user.setId(userId);
+        user.setTokenVersion(2);
+
+        when(userRepository.findActiveTokenVersion(userId))
+                .thenReturn(Optional.of(2))
+                .thenReturn(Optional.of(3));
+
+        assertThat(tokenVersionService.isCurrent(userId, 2)).isTrue();
+
+        tokenVersionService.revokeAll(user);
+
+        assertThat(user.getTokenVersion()).isEqualTo(3);
+        assertThat(tokenVersionService.isCurrent(userId, 2)).isFalse();
+    }
+
+    @Test
+    @DisplayName("isCurrent - должен отклонять токены отключённого пользователя")
+    void isCurrent_ShouldRejectDisabledUser() {
+
+        when(userRepository.findActiveTokenVersion(userId)).thenReturn(Optional.empty());
+
+        assertThat(tokenVersionService.isCurrent(userId, 0)).isFalse();
+    }
+}
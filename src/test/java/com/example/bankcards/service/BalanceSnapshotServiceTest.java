@@ -0,0 +1,234 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BalanceAtDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardBalanceSnapshot;
+import com.example.bankcards.repository.CardBalanceSnapshotRepository;
+import com.example.bankcards.util.UuidRange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BalanceSnapshotService Unit Tests")
+class BalanceSnapshotServiceTest {
+
+    @Mock
+    private CardBalanceSnapshotRepository snapshotRepository;
+
+    @Mock
+    private CardService cardService;
+
+    @Mock
+    private TransferPartitionService transferPartitionService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BalanceSnapshotService balanceSnapshotService;
+
+    private final UUID cardId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        balanceSnapshotService = new BalanceSnapshotService(snapshotRepository, cardService, transferPartitionService, transactionManager, 4, 2);
+    }
+
+    @Test
+    @DisplayName("getBalanceAt - должен сложить ближайший снимок и движения после него")
+    void getBalanceAt_ShouldAddDeltaToNearestSnapshot() {
+
+        LocalDateTime at = LocalDateTime.of(2025, 3, 10, 15, 30);
+
+        CardBalanceSnapshot snapshot = new CardBalanceSnapshot();
+        snapshot.setCardId(cardId);
+        snapshot.setSnapshotDate(LocalDate.of(2025, 3, 9));
+        snapshot.setBalance(BigDecimal.valueOf(1000));
+
+        when(snapshotRepository.findFirstByCardIdAndSnapshotDateLessThanOrderBySnapshotDateDesc(cardId, LocalDate.of(2025, 3, 10)))
+                .thenReturn(Optional.of(snapshot));
+        when(snapshotRepository.balanceDelta(cardId, LocalDateTime.of(2025, 3, 10, 0, 0), at))
+                .thenReturn(BigDecimal.valueOf(-250));
+
+        BalanceAtDto result = balanceSnapshotService.getBalanceAt(cardId, at, "testuser");
+
+        verify(cardService).getCardById(cardId, "testuser");
+        assertThat(result.balance()).isEqualByComparingTo(BigDecimal.valueOf(750));
+        assertThat(result.snapshotDate()).isEqualTo(LocalDate.of(2025, 3, 9));
+    }
+
+    @Test
+    @DisplayName("getBalanceAt - без снимков должен считать движения с начала истории")
+    void getBalanceAt_ShouldReplayFromStartWithoutSnapshot() {
+
+        LocalDateTime at = LocalDateTime.of(2025, 3, 10, 15, 30);
+
+        when(snapshotRepository.findFirstByCardIdAndSnapshotDateLessThanOrderBySnapshotDateDesc(any(), any()))
+                .thenReturn(Optional.empty());
+        when(snapshotRepository.balanceDelta(cardId, BalanceSnapshotService.EPOCH, at))
+                .thenReturn(BigDecimal.valueOf(300));
+
+        BalanceAtDto result = balanceSnapshotService.getBalanceAt(cardId, at, "testuser");
+
+        assertThat(result.balance()).isEqualByComparingTo(BigDecimal.valueOf(300));
+        assertThat(result.snapshotDate()).isNull();
+    }
+
+    @Test
+    @DisplayName("getBalanceAt - если начало окна в архиве, должен считать назад от следующего снимка")
+    void getBalanceAt_ShouldCountBackFromLaterSnapshotWhenHistoryArchived() {
+
+        LocalDateTime at = LocalDateTime.of(2025, 3, 10, 15, 30);
+        archivedBefore(LocalDateTime.of(2025, 2, 1, 0, 0));
+
+        CardBalanceSnapshot later = new CardBalanceSnapshot();
+        later.setCardId(cardId);
+        later.setSnapshotDate(LocalDate.of(2025, 3, 12));
+        later.setBalance(BigDecimal.valueOf(1000));
+
+        when(snapshotRepository.findFirstByCardIdAndSnapshotDateLessThanOrderBySnapshotDateDesc(cardId, LocalDate.of(2025, 3, 10)))
+                .thenReturn(Optional.empty());
+        when(snapshotRepository.findFirstByCardIdAndSnapshotDateGreaterThanEqualOrderBySnapshotDateAsc(cardId, LocalDate.of(2025, 3, 10)))
+                .thenReturn(Optional.of(later));
+        when(snapshotRepository.balanceDeltaBetween(cardId, at, LocalDateTime.of(2025, 3, 13, 0, 0)))
+                .thenReturn(BigDecimal.valueOf(200));
+
+        BalanceAtDto result = balanceSnapshotService.getBalanceAt(cardId, at, "testuser");
+
+        assertThat(result.balance()).isEqualByComparingTo(BigDecimal.valueOf(800));
+        assertThat(result.snapshotDate()).isEqualTo(LocalDate.of(2025, 3, 12));
+        verify(snapshotRepository, never()).balanceDelta(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("getBalanceAt - момент раньше архивной границы должен отклоняться, а не считаться по неполному журналу")
+    void getBalanceAt_ShouldRejectMomentBeforeArchivedHistory() {
+
+        LocalDateTime at = LocalDateTime.of(2025, 1, 10, 15, 30);
+        archivedBefore(LocalDateTime.of(2025, 2, 1, 0, 0));
+
+        when(snapshotRepository.findFirstByCardIdAndSnapshotDateLessThanOrderBySnapshotDateDesc(cardId, LocalDate.of(2025, 1, 10)))
+                .thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> balanceSnapshotService.getBalanceAt(cardId, at, "testuser"));
+        verify(snapshotRepository, never()).balanceDelta(any(), any(), any());
+    }
+
+    private void archivedBefore(LocalDateTime historyStart) {
+        Card card = new Card();
+        card.setCreatedAt(LocalDateTime.of(2024, 6, 1, 0, 0));
+        when(cardService.getCardById(cardId, "testuser")).thenReturn(card);
+        when(transferPartitionService.historyStart()).thenReturn(historyStart);
+    }
+
+    @Test
+    @DisplayName("runSnapshot - должен обработать только ещё не сделанные чанки")
+    void runSnapshot_ShouldSkipFinishedChunks() {
+
+        LocalDate day = LocalDate.now().minusDays(1);
+
+        when(snapshotRepository.countFinishedChunks(day)).thenReturn(1);
+        when(snapshotRepository.claimChunk(eq(day), anyInt())).thenAnswer(inv -> inv.getArgument(1, Integer.class) == 0 ? 0 : 1);
+        when(snapshotRepository.snapshotRange(eq(day), any(), any(), any(), any())).thenReturn(10);
+
+        long cards = balanceSnapshotService.runSnapshot(day);
+
+        assertEquals(30, cards);
+        verify(snapshotRepository, times(3)).snapshotRange(eq(day), eq(day.plusDays(1).atStartOfDay()), any(), any(), any());
+        verify(snapshotRepository, never()).finishChunk(day, 0, 10);
+        verify(snapshotRepository).finishChunk(day, 3, 10);
+    }
+
+    @Test
+    @DisplayName("runSnapshot - должен отклонить незавершённый день")
+    void runSnapshot_ShouldRejectCurrentDay() {
+        assertThrows(IllegalArgumentException.class, () -> balanceSnapshotService.runSnapshot(LocalDate.now()));
+    }
+
+    @Test
+    @DisplayName("snapshotDay - должен вернуться сразу и снять балансы в фоне")
+    void snapshotDay_ShouldRunInBackground() throws Exception {
+
+        LocalDate day = LocalDate.now().minusDays(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(snapshotRepository.countFinishedChunks(day)).thenAnswer(inv -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return 4;
+        });
+
+        balanceSnapshotService.snapshotDay(day);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThrows(IllegalStateException.class, () -> balanceSnapshotService.snapshotDay(day));
+
+        release.countDown();
+        balanceSnapshotService.shutdown();
+    }
+
+    @Test
+    @DisplayName("startSnapshot - запуск по расписанию не должен занимать вызывающий поток на время снятия")
+    void startSnapshot_ShouldNotBlockCaller() throws Exception {
+
+        LocalDate day = LocalDate.now().minusDays(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<String> runThread = new AtomicReference<>();
+        when(snapshotRepository.countFinishedChunks(day)).thenAnswer(inv -> {
+            runThread.set(Thread.currentThread().getName());
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return 4;
+        });
+
+        new BalanceSnapshotJob(balanceSnapshotService).snapshotYesterday();
+
+        // Поток планировщика уже свободен, хотя снятие ещё идёт
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(runThread.get()).isEqualTo("balance-snapshot").isNotEqualTo(Thread.currentThread().getName());
+
+        release.countDown();
+        balanceSnapshotService.shutdown();
+    }
+
+    @Test
+    @DisplayName("snapshotDay - незавершённый день должен отклоняться сразу")
+    void snapshotDay_ShouldRejectCurrentDaySynchronously() {
+        assertThrows(IllegalArgumentException.class, () -> balanceSnapshotService.snapshotDay(LocalDate.now()));
+        verifyNoInteractions(snapshotRepository);
+    }
+
+    @Test
+    @DisplayName("UuidRange.split - диапазоны должны покрывать всё пространство UUID без пересечений")
+    void split_ShouldCoverWholeSpace() {
+
+        List<UuidRange> ranges = UuidRange.split(3);
+
+        assertThat(ranges).hasSize(3);
+        assertThat(ranges.get(0).lower()).isEqualTo(new UUID(0L, 0L));
+        assertThat(ranges.get(2).upper()).isEqualTo(UUID.fromString("ffffffff-ffff-ffff-ffff-ffffffffffff"));
+        assertThat(ranges.get(0).upper().toString()).isEqualTo("5554ffff-ffff-ffff-ffff-ffffffffffff");
+        assertThat(ranges.get(1).lower().toString()).isEqualTo("55550000-0000-0000-0000-000000000000");
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.bankcards.service;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Подключение к базе из docker-compose для JDBC-бенчмарков.
+ * Использует те же переменные окружения, что и приложение (DB_HOST, DB_PORT, DB_NAME, DB_USER, DB_PASSWORD).
+ */
+final class BenchmarkDatabase {
+
+    private BenchmarkDatabase(){}
+
+    static Connection connect() throws SQLException {
+        String url = "jdbc:postgresql://" + env("DB_HOST", "localhost") + ":" + env("DB_PORT", "5432")
+                + "/" + env("DB_NAME", "bank") + "?reWriteBatchedInserts=true";
+        Connection connection = DriverManager.getConnection(url, env("DB_USER", "bank_user"), env("DB_PASSWORD", "bank_password"));
+        connection.setAutoCommit(false);
+        return connection;
+    }
+
+    static UUID createUser(Connection connection) throws SQLException {
+        UUID userId = UUID.randomUUID();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO users (id, username, password_hash, role_id) " +
+                        "VALUES (?, ?, 'bench', (SELECT id FROM roles WHERE name = 'ROLE_USER'))")) {
+            ps.setObject(1, userId);
+            ps.setString(2, "bench-" + userId);
+            ps.executeUpdate();
+        }
+        connection.commit();
+        return userId;
+    }
+
+    static UUID createCard(Connection connection, UUID userId, BigDecimal balance) throws SQLException {
+        UUID cardId = UUID.randomUUID();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO cards (id, user_id, owner_name, pan_encrypted, pan_last4, pan_hash, exp_month, exp_year, status, balance) " +
+                        "VALUES (?, ?, 'BENCH', 'bench', '0000', ?, 12, 2099, 'ACTIVE', ?)")) {
+            ps.setObject(1, cardId);
+            ps.setObject(2, userId);
+            ps.setString(3, cardId.toString().replace("-", ""));
+            ps.setBigDecimal(4, balance);
+            ps.executeUpdate();
+        }
+        connection.commit();
+        return cardId;
+    }
+
+    static void dropUser(Connection connection, UUID userId) throws SQLException {
+        connection.rollback();
+        try (PreparedStatement transfers = connection.prepareStatement(
+                "DELETE FROM transfers WHERE from_card_id IN (SELECT id FROM cards WHERE user_id = ?)");
+             PreparedStatement cards = connection.prepareStatement("DELETE FROM cards WHERE user_id = ?");
+             PreparedStatement users = connection.prepareStatement("DELETE FROM users WHERE id = ?")) {
+            transfers.setObject(1, userId);
+            transfers.executeUpdate();
+            cards.setObject(1, userId);
+            cards.executeUpdate();
+            users.setObject(1, userId);
+            users.executeUpdate();
+        }
+        connection.commit();
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+}
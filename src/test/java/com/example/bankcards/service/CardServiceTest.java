@@ -3,11 +3,13 @@ package com.example.bankcards.service;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardDepositRepository;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.util.CardEncryptionUtil;
 import com.example.bankcards.util.CardMaskingUtil;
 import com.example.bankcards.util.CardNumberGenerator;
+import com.example.bankcards.util.Money;
 import com.example.bankcards.util.ValidationUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -34,6 +36,9 @@ class CardServiceTest {
     @Mock
     private CardRepository cardRepository;
 
+    @Mock
+    private CardDepositRepository cardDepositRepository;
+
     @Mock
     private UserRepository userRepository;
 
@@ -49,6 +54,12 @@ class CardServiceTest {
     @Mock
     private ValidationUtil validationUtil;
 
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private PanResolver panResolver;
+
     @InjectMocks
     private CardService cardService;
 
@@ -88,7 +99,7 @@ class CardServiceTest {
         testCard.setExpMonth(12);
         testCard.setExpYear(2026);
         testCard.setStatus("ACTIVE");
-        testCard.setBalance(BigDecimal.valueOf(1000));
+        testCard.setBalance(Money.of(BigDecimal.valueOf(1000)));
         testCard.setCreatedAt(LocalDateTime.now());
         testCard.setUpdatedAt(LocalDateTime.now());
     }
@@ -139,7 +150,7 @@ class CardServiceTest {
         assertThat(result.getExpMonth()).isEqualTo(12);
         assertThat(result.getExpYear()).isEqualTo(2026);
         assertThat(result.getStatus()).isEqualTo("ACTIVE");
-        assertThat(result.getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(result.getBalance()).isEqualTo(Money.ZERO);
         assertThat(result.getUser()).isEqualTo(testUser);
 
         verify(userRepository, times(1)).findById(userId);
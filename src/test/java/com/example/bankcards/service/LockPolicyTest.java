@@ -0,0 +1,113 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("LockPolicy Unit Tests")
+class LockPolicyTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LockPolicy lockPolicy;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lockPolicy = new LockPolicy(cardRepository, meterRegistry, 1500, 3, 5, 0, 0);
+    }
+
+    @Test
+    @DisplayName("execute - должен повторить операцию после deadlock")
+    void execute_ShouldRetryDeadlock() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = lockPolicy.execute("transfer", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw lockFailure(LockPolicy.DEADLOCK_DETECTED);
+            }
+            return "done";
+        });
+
+        assertThat(result).isEqualTo("done");
+        assertThat(calls.get()).isEqualTo(3);
+        assertThat(meterRegistry.counter("bank.lock.retries", "operation", "transfer", "reason", "deadlock").count())
+                .isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("execute - должен прекратить повторы после max-attempts")
+    void execute_ShouldGiveUpAfterMaxAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(CannotAcquireLockException.class, () -> lockPolicy.execute("transfer", () -> {
+            calls.incrementAndGet();
+            throw lockFailure(LockPolicy.SERIALIZATION_FAILURE);
+        }));
+
+        assertThat(calls.get()).isEqualTo(3);
+        assertThat(meterRegistry.counter("bank.lock.exhausted", "operation", "transfer", "reason", "serialization").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("execute - не должен повторять lock_timeout и бизнес-ошибки")
+    void execute_ShouldNotRetryOtherFailures() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(CannotAcquireLockException.class, () -> lockPolicy.execute("transfer", () -> {
+            calls.incrementAndGet();
+            throw lockFailure("55P03");
+        }));
+        assertThrows(IllegalStateException.class, () -> lockPolicy.execute("transfer", () -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("Insufficient funds");
+        }));
+
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("execute - должен повторять конфликт версий до optimistic-max-attempts")
+    void execute_ShouldRetryOptimisticConflicts() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> lockPolicy.execute("card", () -> {
+            calls.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Card", "id");
+        }));
+
+        assertThat(calls.get()).isEqualTo(5);
+        assertThat(meterRegistry.counter("bank.lock.retries", "operation", "card", "reason", "optimistic").count())
+                .isEqualTo(4.0);
+    }
+
+    @Test
+    @DisplayName("applyLockTimeout - должен установить lock_timeout на транзакцию")
+    void applyLockTimeout_ShouldSetTransactionLocalTimeout() {
+        lockPolicy.applyLockTimeout();
+
+        verify(cardRepository).setLocalLockTimeout("1500ms");
+    }
+
+    private static CannotAcquireLockException lockFailure(String sqlState) {
+        return new CannotAcquireLockException("lock failure", new SQLException("lock failure", sqlState));
+    }
+}
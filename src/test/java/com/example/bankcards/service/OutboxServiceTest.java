@@ -0,0 +1,95 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.OutboxEvent;
+import com.example.bankcards.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("OutboxService Unit Tests")
+class OutboxServiceTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private OutboxPublisher outboxPublisher;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private OutboxService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        outboxService = new OutboxService(outboxEventRepository, outboxPublisher, objectMapper);
+    }
+
+    @Test
+    @DisplayName("relayBatch - должен опубликовать пачку и только потом удалить её из outbox")
+    void relayBatch_ShouldPublishThenDelete() {
+
+        OutboxEvent first = cardEvent();
+        OutboxEvent second = cardEvent();
+        when(outboxEventRepository.claimBatch(100)).thenReturn(List.of(first, second));
+
+        int relayed = outboxService.relayBatch(100);
+
+        assertEquals(2, relayed);
+        InOrder order = inOrder(outboxPublisher, outboxEventRepository);
+        order.verify(outboxPublisher).publish(List.of(first, second));
+        order.verify(outboxEventRepository).deleteAllByIdInBatch(List.of(first.getId(), second.getId()));
+    }
+
+    @Test
+    @DisplayName("relayBatch - при ошибке публикации события должны остаться в outbox")
+    void relayBatch_ShouldKeepEventsWhenPublishFails() {
+
+        when(outboxEventRepository.claimBatch(100)).thenReturn(List.of(cardEvent()));
+        doThrow(new IllegalStateException("sink is down")).when(outboxPublisher).publish(any());
+
+        assertThrows(IllegalStateException.class, () -> outboxService.relayBatch(100));
+        verify(outboxEventRepository, never()).deleteAllByIdInBatch(any());
+    }
+
+    @Test
+    @DisplayName("FileOutboxPublisher - должен дописывать события построчно в NDJSON")
+    void filePublisher_ShouldAppendNdjson(@TempDir Path dir) throws Exception {
+
+        Path file = dir.resolve("out/events.ndjson");
+        FileOutboxPublisher publisher = new FileOutboxPublisher(objectMapper, file.toString());
+
+        OutboxEvent event = cardEvent();
+        publisher.publish(List.of(event));
+        publisher.publish(List.of(cardEvent()));
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readTree(lines.get(0)).get("id").asText()).isEqualTo(event.getId().toString());
+        assertThat(objectMapper.readTree(lines.get(0)).at("/payload/status").asText()).isEqualTo("BLOCKED");
+    }
+
+    private OutboxEvent cardEvent() {
+        UUID cardId = UUID.randomUUID();
+        return outboxService.event(OutboxService.AGGREGATE_CARD, cardId, OutboxService.CARD_BLOCKED,
+                Map.of("cardId", cardId, "status", "BLOCKED"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.CardEncryptionUtil;
+import com.example.bankcards.util.CardMaskingUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PanResolver Unit Tests")
+class PanResolverTest {
+
+    private static final String PAN = "4000001234567899";
+    private static final String PAN_HASH = "hash";
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private CardEncryptionUtil cardEncryptionUtil;
+
+    private PanResolver panResolver;
+
+    @BeforeEach
+    void setUp() {
+        panResolver = new PanResolver(cardRepository, cardEncryptionUtil, new CardMaskingUtil(), 100, 10);
+    }
+
+    @Test
+    @DisplayName("resolve - должен искать карту по хэшу один раз для повторного получателя")
+    void resolve_ShouldCacheResolvedCard() {
+
+        UUID cardId = UUID.randomUUID();
+        when(cardEncryptionUtil.hashPan(PAN)).thenReturn(PAN_HASH);
+        when(cardRepository.findIdByPanHash(PAN_HASH)).thenReturn(Optional.of(cardId));
+
+        assertThat(panResolver.resolve(PAN)).isEqualTo(cardId);
+        assertThat(panResolver.resolve(PAN)).isEqualTo(cardId);
+
+        verify(cardRepository, times(1)).findIdByPanHash(PAN_HASH);
+        verify(cardEncryptionUtil, never()).decryptPan(any());
+    }
+
+    @Test
+    @DisplayName("resolve - не должен кэшировать ненайденные номера")
+    void resolve_ShouldNotCacheMisses() {
+
+        UUID cardId = UUID.randomUUID();
+        when(cardEncryptionUtil.hashPan(PAN)).thenReturn(PAN_HASH);
+        when(cardRepository.findIdByPanHash(PAN_HASH))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(cardId));
+
+        assertThrows(ResourceNotFoundException.class, () -> panResolver.resolve(PAN));
+        assertThat(panResolver.resolve(PAN)).isEqualTo(cardId);
+    }
+
+    @Test
+    @DisplayName("resolve - должен отклонить некорректный номер без обращения к БД")
+    void resolve_ShouldRejectInvalidPan() {
+
+        assertThrows(IllegalArgumentException.class, () -> panResolver.resolve("1234"));
+        verifyNoInteractions(cardRepository);
+    }
+}
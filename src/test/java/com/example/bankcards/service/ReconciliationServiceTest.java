@@ -0,0 +1,162 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.util.UuidRange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ReconciliationService Unit Tests")
+class ReconciliationServiceTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ResultSet rows;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReconciliationService reconciliationService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        reconciliationService = new ReconciliationService(dataSource, jdbcTemplate, meterRegistry, 2, 2, 500);
+
+        lenient().when(dataSource.getConnection()).thenReturn(connection);
+        lenient().when(connection.prepareStatement(ReconciliationService.RANGE_QUERY)).thenReturn(statement);
+        lenient().when(statement.executeQuery()).thenReturn(rows);
+    }
+
+    @Test
+    @DisplayName("reconcileRange - должен читать курсором на read-only соединении и записать только расхождения")
+    void reconcileRange_ShouldStreamAndReportMismatches() throws Exception {
+
+        UUID runId = UUID.randomUUID();
+        UUID badCard = UUID.randomUUID();
+
+        when(rows.next()).thenReturn(true, true, false);
+        when(rows.getBigDecimal(2)).thenReturn(new BigDecimal("100.00"), new BigDecimal("50.00"));
+        when(rows.getBigDecimal(3)).thenReturn(new BigDecimal("100"), new BigDecimal("40.00"));
+        when(rows.getObject(1, UUID.class)).thenReturn(badCard);
+
+        List<Object[]> written = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(eq(ReconciliationService.INSERT_MISMATCH), anyList())).thenAnswer(inv -> {
+            written.addAll(inv.getArgument(1));
+            return new int[]{1};
+        });
+
+        long found = reconciliationService.reconcileRange(runId, UuidRange.split(1).get(0));
+
+        assertEquals(1, found);
+        verify(connection).setReadOnly(true);
+        verify(connection).setAutoCommit(false);
+        verify(statement).setFetchSize(500);
+        verify(connection).close();
+
+        assertThat(written).hasSize(1);
+        assertThat(written.get(0)[1]).isEqualTo(badCard);
+
+        assertThat(meterRegistry.counter("bank.reconciliation.cards").count()).isEqualTo(2.0);
+        assertThat(meterRegistry.counter("bank.reconciliation.mismatches").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("reconcile - должен обработать все диапазоны и закрыть запуск со статусом COMPLETED")
+    void reconcile_ShouldProcessAllRanges() throws Exception {
+
+        when(rows.next()).thenReturn(false);
+
+        UUID runId = reconciliationService.reconcile();
+
+        verify(dataSource, times(2)).getConnection();
+        verify(jdbcTemplate).update(startsWith("UPDATE reconciliation_runs"),
+                eq(ReconciliationService.RUN_COMPLETED), eq(0L), eq(0L), eq(runId));
+        assertThat(meterRegistry.get("bank.reconciliation.progress").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("reconcile - сбой при создании запуска не должен блокировать следующие сверки")
+    void reconcile_WhenRunInsertFails_ShouldAllowNextRun() throws Exception {
+
+        when(jdbcTemplate.update(startsWith("INSERT INTO reconciliation_runs"), any(UUID.class), eq(ReconciliationService.RUN_RUNNING)))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"))
+                .thenReturn(1);
+        when(rows.next()).thenReturn(false);
+
+        assertThatThrownBy(() -> reconciliationService.reconcile())
+                .isInstanceOf(DataAccessResourceFailureException.class);
+
+        UUID runId = reconciliationService.reconcile();
+
+        verify(jdbcTemplate).update(startsWith("UPDATE reconciliation_runs"),
+                eq(ReconciliationService.RUN_COMPLETED), eq(0L), eq(0L), eq(runId));
+    }
+
+    @Test
+    @DisplayName("reconcileNightly - долгая сверка не должна останавливать опросы на однопоточном планировщике")
+    void reconcileNightly_ShouldNotBlockOtherScheduledTasks() throws Exception {
+
+        CountDownLatch insertReached = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(jdbcTemplate.update(startsWith("INSERT INTO reconciliation_runs"), any(UUID.class), eq(ReconciliationService.RUN_RUNNING)))
+                .thenAnswer(inv -> {
+                    insertReached.countDown();
+                    release.await(10, TimeUnit.SECONDS);
+                    throw new DataAccessResourceFailureException("stop here");
+                });
+
+        // Худший случай: у планировщика один поток, как у Spring Boot по умолчанию
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.initialize();
+        try {
+            CountDownLatch polls = new CountDownLatch(3);
+            scheduler.execute(new ReconciliationJob(reconciliationService)::reconcileNightly);
+            assertThat(insertReached.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Так работают очередь переводов и outbox: короткий опрос с фиксированной задержкой
+            scheduler.scheduleWithFixedDelay(polls::countDown, Duration.ofMillis(10));
+
+            assertThat(polls.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(release.getCount()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            scheduler.shutdown();
+            reconciliationService.shutdown();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.TransferView;
+import com.example.bankcards.util.CardMaskingUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TransferExportService Unit Tests")
+class TransferExportServiceTest {
+
+    @Mock
+    private TransferRepository transferRepository;
+
+    @Mock
+    private CardService cardService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TransferExportService transferExportService;
+
+    private final UUID cardId = UUID.randomUUID();
+    private final UUID otherCardId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        transferExportService = new TransferExportService(transferRepository, cardService, new CardMaskingUtil(), objectMapper, transactionManager);
+    }
+
+    @Test
+    @DisplayName("export - должен выгрузить CSV с заголовком и закрыть курсор")
+    void export_ShouldWriteCsv() throws Exception {
+
+        TransferView row = view(UUID.randomUUID(), LocalDateTime.of(2025, 3, 1, 10, 15, 30));
+        Stream<TransferView> rows = Stream.of(row);
+        Runnable onClose = mock(Runnable.class);
+        when(transferRepository.streamHistory(eq(cardId), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(rows.onClose(onClose));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transferExportService.export(cardId, TransferExportService.Format.CSV, false, null, null, "testuser").writeTo(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).isEqualTo("id,from_card_id,from_card_masked,to_card_id,to_card_masked,amount,created_at");
+        assertThat(lines[1]).isEqualTo(row.getId() + "," + cardId + ",," + otherCardId + ",,12.50,2025-03-01T10:15:30");
+
+        verify(cardService).getCardById(cardId, "testuser");
+        verify(onClose).run();
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    @DisplayName("export - должен выгрузить NDJSON со сжатием gzip")
+    void export_ShouldWriteGzippedNdjson() throws Exception {
+
+        TransferView newer = view(UUID.randomUUID(), LocalDateTime.of(2025, 3, 1, 10, 0));
+        TransferView older = view(UUID.randomUUID(), LocalDateTime.of(2025, 2, 1, 10, 0));
+        when(transferRepository.streamHistory(eq(cardId), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(Stream.of(newer, older));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transferExportService.export(cardId, TransferExportService.Format.NDJSON, true, null, null, "testuser").writeTo(out);
+
+        String text;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String[] lines = text.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("{\"id\":").contains("\"createdAt\":\"2025-03-01T10:00:00\"");
+        assertThat(lines[1]).contains("\"amount\":12.50");
+    }
+
+    @Test
+    @DisplayName("export - карта другого клиента не должна попадать в выгрузку своим ID")
+    void export_ShouldMaskForeignCounterparty() throws Exception {
+
+        TransferView outgoing = view(UUID.randomUUID(), LocalDateTime.of(2025, 3, 1, 10, 0));
+        when(outgoing.getCounterpartyLast4()).thenReturn("4321");
+        TransferView incoming = view(UUID.randomUUID(), LocalDateTime.of(2025, 2, 1, 10, 0));
+        when(incoming.getFromCardId()).thenReturn(otherCardId);
+        when(incoming.getToCardId()).thenReturn(cardId);
+        when(incoming.getCounterpartyLast4()).thenReturn("4321");
+
+        for (TransferExportService.Format format : TransferExportService.Format.values()) {
+            when(transferRepository.streamHistory(eq(cardId), any(LocalDateTime.class), any(LocalDateTime.class)))
+                    .thenReturn(Stream.of(outgoing, incoming));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            transferExportService.export(cardId, format, false, null, null, "testuser").writeTo(out);
+            String text = out.toString(StandardCharsets.UTF_8);
+
+            assertThat(text).doesNotContain(otherCardId.toString()).contains("**** **** **** 4321");
+        }
+    }
+
+    @Test
+    @DisplayName("Format.parse - должен отклонить неизвестный формат")
+    void parse_ShouldRejectUnknownFormat() {
+        assertThrows(IllegalArgumentException.class, () -> TransferExportService.Format.parse("xml"));
+    }
+
+    private TransferView view(UUID id, LocalDateTime createdAt) {
+        TransferView view = mock(TransferView.class);
+        lenient().when(view.getId()).thenReturn(id);
+        lenient().when(view.getFromCardId()).thenReturn(cardId);
+        lenient().when(view.getToCardId()).thenReturn(otherCardId);
+        lenient().when(view.getAmount()).thenReturn(new BigDecimal("12.50"));
+        lenient().when(view.getCreatedAt()).thenReturn(createdAt);
+        return view;
+    }
+}
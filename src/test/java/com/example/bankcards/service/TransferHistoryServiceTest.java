@@ -0,0 +1,137 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferHistoryItemDto;
+import com.example.bankcards.dto.TransferHistoryPageDto;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.TransferView;
+import com.example.bankcards.util.CardMaskingUtil;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TransferHistoryService Unit Tests")
+class TransferHistoryServiceTest {
+
+    @Mock
+    private TransferRepository transferRepository;
+
+    @Mock
+    private CardService cardService;
+
+    @Spy
+    private CardMaskingUtil cardMaskingUtil = new CardMaskingUtil();
+
+    @InjectMocks
+    private TransferHistoryService transferHistoryService;
+
+    private final UUID cardId = UUID.randomUUID();
+
+    @Test
+    @DisplayName("getHistory - должен вернуть курсор, если есть следующая страница")
+    void getHistory_ShouldReturnCursorWhenMoreRows() {
+
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 12, 0);
+        List<TransferView> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            rows.add(view(UUID.randomUUID(), start.minusMinutes(i)));
+        }
+        when(transferRepository.findHistory(eq(cardId), any(LocalDateTime.class), eq(3))).thenReturn(rows);
+
+        TransferHistoryPageDto page = transferHistoryService.getHistory(cardId, null, 2, null, "testuser");
+
+        verify(cardService).getCardById(cardId, "testuser");
+        assertThat(page.items()).hasSize(2);
+        assertThat(page.nextCursor()).isNotNull();
+
+        TransferHistoryService.Cursor cursor = TransferHistoryService.decodeCursor(page.nextCursor());
+        assertThat(cursor.createdAt()).isEqualTo(rows.get(1).getCreatedAt());
+        assertThat(cursor.id()).isEqualTo(rows.get(1).getId());
+    }
+
+    @Test
+    @DisplayName("getHistory - должен продолжить с позиции курсора и не вернуть курсор на последней странице")
+    void getHistory_ShouldContinueFromCursor() {
+
+        UUID lastId = UUID.randomUUID();
+        LocalDateTime lastCreatedAt = LocalDateTime.of(2025, 1, 1, 12, 0, 0, 123456000);
+        LocalDateTime since = LocalDateTime.of(2024, 6, 1, 0, 0);
+        String cursor = TransferHistoryService.encodeCursor(lastCreatedAt, lastId, since);
+
+        TransferView older = view(UUID.randomUUID(), lastCreatedAt.minusSeconds(1));
+        when(transferRepository.findHistoryBefore(cardId, since, lastCreatedAt, lastId, 51))
+                .thenReturn(List.of(older));
+
+        TransferHistoryPageDto page = transferHistoryService.getHistory(cardId, cursor, null, null, "testuser");
+
+        assertThat(page.items()).hasSize(1);
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("getHistory - карта другого клиента должна отдаваться маской без ID")
+    void getHistory_ShouldMaskForeignCounterparty() {
+
+        UUID foreignCardId = UUID.randomUUID();
+        UUID ownCardId = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+        TransferView outgoing = view(UUID.randomUUID(), now);
+        when(outgoing.getFromCardId()).thenReturn(cardId);
+        lenient().when(outgoing.getToCardId()).thenReturn(foreignCardId);
+        when(outgoing.getCounterpartyLast4()).thenReturn("4321");
+
+        TransferView incoming = view(UUID.randomUUID(), now.minusMinutes(1));
+        when(incoming.getFromCardId()).thenReturn(foreignCardId);
+        when(incoming.getToCardId()).thenReturn(cardId);
+        when(incoming.getCounterpartyLast4()).thenReturn("4321");
+
+        TransferView own = view(UUID.randomUUID(), now.minusMinutes(2));
+        when(own.getFromCardId()).thenReturn(cardId);
+        when(own.getToCardId()).thenReturn(ownCardId);
+
+        when(transferRepository.findHistory(eq(cardId), any(LocalDateTime.class), eq(51)))
+                .thenReturn(List.of(outgoing, incoming, own));
+
+        List<TransferHistoryItemDto> items = transferHistoryService.getHistory(cardId, null, null, null, "testuser").items();
+
+        assertThat(items).extracting(TransferHistoryItemDto::fromCardId).doesNotContain(foreignCardId);
+        assertThat(items).extracting(TransferHistoryItemDto::toCardId).doesNotContain(foreignCardId);
+        assertThat(items.get(0).toCardMasked()).isEqualTo("**** **** **** 4321");
+        assertThat(items.get(1).fromCardMasked()).isEqualTo("**** **** **** 4321");
+        assertThat(items.get(1).toCardId()).isEqualTo(cardId);
+        assertThat(items.get(2).toCardId()).isEqualTo(ownCardId);
+        assertThat(items.get(2).toCardMasked()).isNull();
+    }
+
+    @Test
+    @DisplayName("getHistory - должен отклонить некорректный курсор")
+    void getHistory_ShouldRejectInvalidCursor() {
+
+        assertThrows(IllegalArgumentException.class,
+                () -> transferHistoryService.getHistory(cardId, "not-a-cursor", null, null, "testuser"));
+        verify(transferRepository, never()).findHistoryBefore(any(), any(), any(), any(), anyInt());
+    }
+
+    private TransferView view(UUID id, LocalDateTime createdAt) {
+        TransferView view = mock(TransferView.class);
+        lenient().when(view.getId()).thenReturn(id);
+        lenient().when(view.getCreatedAt()).thenReturn(createdAt);
+        lenient().when(view.getAmount()).thenReturn(BigDecimal.TEN);
+        return view;
+    }
+}
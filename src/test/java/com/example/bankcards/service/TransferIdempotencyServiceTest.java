@@ -0,0 +1,134 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferResponseDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.util.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TransferIdempotencyService Unit Tests")
+class TransferIdempotencyServiceTest {
+
+    private static final String KEY = "retry-123";
+
+    @Mock
+    private TransferRepository transferRepository;
+
+    private TransferIdempotencyService idempotencyService;
+
+    private UUID fromCardId;
+    private UUID toCardId;
+    private Transfer storedTransfer;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new TransferIdempotencyService(transferRepository, 100, 60);
+
+        fromCardId = UUID.randomUUID();
+        toCardId = UUID.randomUUID();
+
+        User owner = new User();
+        owner.setId(UUID.randomUUID());
+        owner.setUsername("testuser");
+
+        Card from = new Card();
+        from.setId(fromCardId);
+        from.setUser(owner);
+
+        Card to = new Card();
+        to.setId(toCardId);
+        to.setUser(owner);
+
+        storedTransfer = new Transfer();
+        storedTransfer.setFromCard(from);
+        storedTransfer.setToCard(to);
+        storedTransfer.setAmount(Money.of(BigDecimal.valueOf(100)));
+        storedTransfer.setIdempotencyKey(KEY);
+    }
+
+    @Test
+    @DisplayName("findPrevious - повтор из кэша не обращается к базе")
+    void findPrevious_ShouldAnswerFromCache() {
+        TransferResponseDto result = new TransferResponseDto(
+                UUID.randomUUID(), fromCardId, toCardId, BigDecimal.valueOf(100), LocalDateTime.now());
+        idempotencyService.remember("testuser", KEY, result);
+
+        Optional<TransferResponseDto> previous = idempotencyService.findPrevious(
+                "testuser", fromCardId, toCardId, new BigDecimal("100.00"), KEY);
+
+        assertThat(previous).contains(result);
+        verifyNoInteractions(transferRepository);
+    }
+
+    @Test
+    @DisplayName("findPrevious - при промахе кэша ищет в базе один раз")
+    void findPrevious_ShouldFallBackToDatabaseOnce() {
+        when(transferRepository.findByFromCardIdAndIdempotencyKey(fromCardId, KEY))
+                .thenReturn(Optional.of(storedTransfer));
+
+        Optional<TransferResponseDto> first = idempotencyService.findPrevious(
+                "testuser", fromCardId, toCardId, BigDecimal.valueOf(100), KEY);
+        Optional<TransferResponseDto> second = idempotencyService.findPrevious(
+                "testuser", fromCardId, toCardId, BigDecimal.valueOf(100), KEY);
+
+        assertThat(first).isPresent();
+        assertThat(first.get().id()).isEqualTo(storedTransfer.getId());
+        assertThat(second).isEqualTo(first);
+        verify(transferRepository, times(1)).findByFromCardIdAndIdempotencyKey(any(), any());
+    }
+
+    @Test
+    @DisplayName("findPrevious - новый ключ не найден")
+    void findPrevious_ShouldReturnEmpty_WhenKeyUnknown() {
+        when(transferRepository.findByFromCardIdAndIdempotencyKey(fromCardId, KEY))
+                .thenReturn(Optional.empty());
+
+        assertThat(idempotencyService.findPrevious(
+                "testuser", fromCardId, toCardId, BigDecimal.valueOf(100), KEY)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("findPrevious - не раскрывает чужие переводы")
+    void findPrevious_ShouldIgnoreTransfersOfAnotherUser() {
+        when(transferRepository.findByFromCardIdAndIdempotencyKey(fromCardId, KEY))
+                .thenReturn(Optional.of(storedTransfer));
+
+        assertThat(idempotencyService.findPrevious(
+                "intruder", fromCardId, toCardId, BigDecimal.valueOf(100), KEY)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("findPrevious - ключ с другим телом запроса отклоняется")
+    void findPrevious_ShouldRejectKeyReuseWithDifferentPayload() {
+        when(transferRepository.findByFromCardIdAndIdempotencyKey(fromCardId, KEY))
+                .thenReturn(Optional.of(storedTransfer));
+
+        assertThrows(IllegalStateException.class, () -> idempotencyService.findPrevious(
+                "testuser", fromCardId, toCardId, BigDecimal.valueOf(500), KEY));
+    }
+
+    @Test
+    @DisplayName("validateKey - отклоняет слишком длинный ключ")
+    void validateKey_ShouldRejectTooLongKey() {
+        assertThrows(IllegalArgumentException.class,
+                () -> idempotencyService.validateKey("k".repeat(TransferIdempotencyService.MAX_KEY_LENGTH + 1)));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.util.UuidUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Переводов в секунду до и после записи строки в transfers.
+ * Воспроизводит SQL, который Hibernate отправляет из TransferService.transfer при включенном JDBC batching:
+ * блокировка обеих карт, batch из двух UPDATE и (во втором варианте) batch INSERT в transfers.
+ * Каждый поток работает со своей парой карт, поэтому меряется стоимость перевода, а не конкуренция за строки.
+ *
+ * Запуск: docker-compose up -d db, затем
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="TransferLedgerBenchmark -t 4"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class TransferLedgerBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @State(Scope.Thread)
+    public static class CardPair {
+        Connection connection;
+        PreparedStatement lock;
+        PreparedStatement update;
+        PreparedStatement insert;
+        UUID userId;
+        UUID first;
+        UUID second;
+        boolean forward;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            connection = BenchmarkDatabase.connect();
+            userId = BenchmarkDatabase.createUser(connection);
+            first = BenchmarkDatabase.createCard(connection, userId, new BigDecimal("1000000.00"));
+            second = BenchmarkDatabase.createCard(connection, userId, new BigDecimal("1000000.00"));
+
+            lock = connection.prepareStatement("SELECT id, balance FROM cards WHERE id IN (?, ?) ORDER BY id FOR UPDATE");
+            update = connection.prepareStatement("UPDATE cards SET balance = ?, updated_at = ? WHERE id = ?");
+            insert = connection.prepareStatement(
+                    "INSERT INTO transfers (id, from_card_id, to_card_id, amount, created_at) VALUES (?, ?, ?, ?, ?)");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            BenchmarkDatabase.dropUser(connection, userId);
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public void transferWithoutLedger(CardPair pair) throws SQLException {
+        transfer(pair, false);
+    }
+
+    @Benchmark
+    public void transferWithLedger(CardPair pair) throws SQLException {
+        transfer(pair, true);
+    }
+
+    private void transfer(CardPair pair, boolean writeLedger) throws SQLException {
+        UUID from = pair.forward ? pair.first : pair.second;
+        UUID to = pair.forward ? pair.second : pair.first;
+        pair.forward = !pair.forward;
+
+        BigDecimal fromBalance = null;
+        BigDecimal toBalance = null;
+
+        pair.lock.setObject(1, from);
+        pair.lock.setObject(2, to);
+        try (ResultSet rs = pair.lock.executeQuery()) {
+            while (rs.next()) {
+                if (from.equals(rs.getObject(1))) {
+                    fromBalance = rs.getBigDecimal(2);
+                } else {
+                    toBalance = rs.getBigDecimal(2);
+                }
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        if (writeLedger) {
+            pair.insert.setObject(1, UuidUtil.timeOrdered());
+            pair.insert.setObject(2, from);
+            pair.insert.setObject(3, to);
+            pair.insert.setBigDecimal(4, AMOUNT);
+            pair.insert.setTimestamp(5, now);
+            pair.insert.addBatch();
+            pair.insert.executeBatch();
+        }
+
+        pair.update.setBigDecimal(1, fromBalance.subtract(AMOUNT));
+        pair.update.setTimestamp(2, now);
+        pair.update.setObject(3, from);
+        pair.update.addBatch();
+        pair.update.setBigDecimal(1, toBalance.add(AMOUNT));
+        pair.update.setTimestamp(2, now);
+        pair.update.setObject(3, to);
+        pair.update.addBatch();
+        pair.update.executeBatch();
+
+        pair.connection.commit();
+    }
+}
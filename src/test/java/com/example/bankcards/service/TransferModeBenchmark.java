@@ -0,0 +1,238 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.util.UuidUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение режимов TransferMode.PESSIMISTIC и TransferMode.CONDITIONAL_UPDATE.
+ * Замер начинается с первого блокирующего запроса и заканчивается COMMIT, поэтому время операции
+ * совпадает со временем удержания блокировок строк; SampleTime дает p50/p99/p99.9.
+ * Варианты *Own работают с отдельной парой карт на поток, варианты *Hot — с одной общей парой.
+ *
+ * Запуск: docker-compose up -d db, затем
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="TransferModeBenchmark -t 8"
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class TransferModeBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    private static final String CONDITIONAL_SQL = """
+            WITH locked AS (
+                SELECT id FROM cards WHERE id IN (?, ?) ORDER BY id FOR NO KEY UPDATE
+            ), debit AS (
+                UPDATE cards SET balance = balance - ?, updated_at = ?
+                WHERE id = ? AND user_id = ? AND status = 'ACTIVE'
+                  AND balance >= ? AND exp_year * 12 + exp_month >= ?
+                  AND (SELECT count(*) FROM locked) = 2
+                RETURNING id
+            ), credit AS (
+                UPDATE cards SET balance = balance + ?, updated_at = ?
+                WHERE id = ? AND user_id = ? AND status = 'ACTIVE'
+                  AND exp_year * 12 + exp_month >= ?
+                  AND EXISTS (SELECT 1 FROM debit)
+                RETURNING id
+            ), ledger AS (
+                INSERT INTO transfers (id, from_card_id, to_card_id, amount, created_at)
+                SELECT ?, ?, ?, ?, ? WHERE EXISTS (SELECT 1 FROM credit)
+                RETURNING id
+            )
+            SELECT (SELECT count(*) FROM debit) + (SELECT count(*) FROM credit) + (SELECT count(*) FROM ledger)
+            """;
+
+    @State(Scope.Thread)
+    public static class Session {
+        Connection connection;
+        PreparedStatement lock;
+        PreparedStatement update;
+        PreparedStatement insert;
+        PreparedStatement conditional;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            connection = BenchmarkDatabase.connect();
+            lock = connection.prepareStatement("SELECT id, balance FROM cards WHERE id IN (?, ?) ORDER BY id FOR UPDATE");
+            update = connection.prepareStatement("UPDATE cards SET balance = ?, updated_at = ? WHERE id = ?");
+            insert = connection.prepareStatement(
+                    "INSERT INTO transfers (id, from_card_id, to_card_id, amount, created_at) VALUES (?, ?, ?, ?, ?)");
+            conditional = connection.prepareStatement(CONDITIONAL_SQL);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+    }
+
+    public abstract static class CardPair {
+        UUID userId;
+        UUID first;
+        UUID second;
+
+        void create() throws SQLException {
+            try (Connection connection = BenchmarkDatabase.connect()) {
+                userId = BenchmarkDatabase.createUser(connection);
+                first = BenchmarkDatabase.createCard(connection, userId, new BigDecimal("1000000.00"));
+                second = BenchmarkDatabase.createCard(connection, userId, new BigDecimal("1000000.00"));
+            }
+        }
+
+        void drop() throws SQLException {
+            try (Connection connection = BenchmarkDatabase.connect()) {
+                BenchmarkDatabase.dropUser(connection, userId);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OwnPair extends CardPair {
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            create();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            drop();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class HotPair extends CardPair {
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            create();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            drop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Direction {
+        boolean forward;
+    }
+
+    @Benchmark
+    public void pessimisticOwn(Session session, OwnPair pair, Direction direction) throws SQLException {
+        pessimistic(session, pair, direction);
+    }
+
+    @Benchmark
+    public void conditionalOwn(Session session, OwnPair pair, Direction direction) throws SQLException {
+        conditional(session, pair, direction);
+    }
+
+    @Benchmark
+    public void pessimisticHot(Session session, HotPair pair, Direction direction) throws SQLException {
+        pessimistic(session, pair, direction);
+    }
+
+    @Benchmark
+    public void conditionalHot(Session session, HotPair pair, Direction direction) throws SQLException {
+        conditional(session, pair, direction);
+    }
+
+    private void pessimistic(Session session, CardPair pair, Direction direction) throws SQLException {
+        UUID from = direction.forward ? pair.first : pair.second;
+        UUID to = direction.forward ? pair.second : pair.first;
+        direction.forward = !direction.forward;
+
+        BigDecimal fromBalance = null;
+        BigDecimal toBalance = null;
+
+        session.lock.setObject(1, from);
+        session.lock.setObject(2, to);
+        try (ResultSet rs = session.lock.executeQuery()) {
+            while (rs.next()) {
+                if (from.equals(rs.getObject(1))) {
+                    fromBalance = rs.getBigDecimal(2);
+                } else {
+                    toBalance = rs.getBigDecimal(2);
+                }
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        session.insert.setObject(1, UuidUtil.timeOrdered());
+        session.insert.setObject(2, from);
+        session.insert.setObject(3, to);
+        session.insert.setBigDecimal(4, AMOUNT);
+        session.insert.setTimestamp(5, now);
+        session.insert.addBatch();
+        session.insert.executeBatch();
+
+        session.update.setBigDecimal(1, fromBalance.subtract(AMOUNT));
+        session.update.setTimestamp(2, now);
+        session.update.setObject(3, from);
+        session.update.addBatch();
+        session.update.setBigDecimal(1, toBalance.add(AMOUNT));
+        session.update.setTimestamp(2, now);
+        session.update.setObject(3, to);
+        session.update.addBatch();
+        session.update.executeBatch();
+
+        session.connection.commit();
+    }
+
+    private void conditional(Session session, CardPair pair, Direction direction) throws SQLException {
+        UUID from = direction.forward ? pair.first : pair.second;
+        UUID to = direction.forward ? pair.second : pair.first;
+        direction.forward = !direction.forward;
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        YearMonth current = YearMonth.now();
+        int minExpiry = current.getYear() * 12 + current.getMonthValue();
+
+        PreparedStatement ps = session.conditional;
+        int i = 1;
+        ps.setObject(i++, from);
+        ps.setObject(i++, to);
+        ps.setBigDecimal(i++, AMOUNT);
+        ps.setTimestamp(i++, now);
+        ps.setObject(i++, from);
+        ps.setObject(i++, pair.userId);
+        ps.setBigDecimal(i++, AMOUNT);
+        ps.setInt(i++, minExpiry);
+        ps.setBigDecimal(i++, AMOUNT);
+        ps.setTimestamp(i++, now);
+        ps.setObject(i++, to);
+        ps.setObject(i++, pair.userId);
+        ps.setInt(i++, minExpiry);
+        ps.setObject(i++, UuidUtil.timeOrdered());
+        ps.setObject(i++, from);
+        ps.setObject(i++, to);
+        ps.setBigDecimal(i++, AMOUNT);
+        ps.setTimestamp(i, now);
+
+        long applied;
+        try (ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            applied = rs.getLong(1);
+        }
+        if (applied != 3) {
+            session.connection.rollback();
+            throw new IllegalStateException("Conditional transfer was not applied");
+        }
+
+        session.connection.commit();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TransferPartitionService Unit Tests")
+class TransferPartitionServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("maintain - должен создать недостающие будущие секции")
+    void maintain_ShouldCreateMissingPartitions() {
+
+        TransferPartitionService service = new TransferPartitionService(jdbcTemplate, 2, 0, 4);
+        when(jdbcTemplate.queryForList(TransferPartitionService.LIST_PARTITIONS, String.class))
+                .thenReturn(List.of("transfers_y2025m01", "transfers_default"));
+
+        service.maintain(YearMonth.of(2025, 1));
+
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS transfers_y2025m02 PARTITION OF transfers "
+                + "FOR VALUES FROM ('2025-02-01') TO ('2025-03-01')");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS transfers_y2025m03 PARTITION OF transfers "
+                + "FOR VALUES FROM ('2025-03-01') TO ('2025-04-01')");
+        verify(jdbcTemplate, times(2)).execute(anyString());
+    }
+
+    @Test
+    @DisplayName("maintain - должен отсоединить без блокировки секции старше срока хранения, покрытые снимком")
+    void maintain_ShouldDetachExpiredPartitions() {
+
+        TransferPartitionService service = new TransferPartitionService(jdbcTemplate, 0, 12, 4);
+        when(jdbcTemplate.queryForList(TransferPartitionService.LIST_PARTITIONS, String.class))
+                .thenReturn(List.of("transfers_y2023m12", "transfers_y2024m01", "transfers_y2025m01"));
+        when(jdbcTemplate.queryForObject(TransferPartitionService.LATEST_COMPLETE_SNAPSHOT, LocalDate.class, 4))
+                .thenReturn(LocalDate.of(2023, 12, 31));
+
+        service.maintain(YearMonth.of(2025, 1));
+
+        verify(jdbcTemplate).execute("ALTER TABLE transfers DETACH PARTITION transfers_y2023m12 CONCURRENTLY");
+        verify(jdbcTemplate, never()).execute(eq("ALTER TABLE transfers DETACH PARTITION transfers_y2024m01 CONCURRENTLY"));
+        assertThat(service.historyStart()).isEqualTo(LocalDateTime.of(2024, 1, 1, 0, 0));
+    }
+
+    @Test
+    @DisplayName("maintain - не должен отсоединять месяц, который не покрыт завершённым снимком балансов")
+    void maintain_ShouldKeepPartitionWithoutCoveringSnapshot() {
+
+        TransferPartitionService service = new TransferPartitionService(jdbcTemplate, 0, 12, 4);
+        when(jdbcTemplate.queryForList(TransferPartitionService.LIST_PARTITIONS, String.class))
+                .thenReturn(List.of("transfers_y2023m11", "transfers_y2023m12", "transfers_y2025m01"));
+        when(jdbcTemplate.queryForObject(TransferPartitionService.LATEST_COMPLETE_SNAPSHOT, LocalDate.class, 4))
+                .thenReturn(LocalDate.of(2023, 12, 30));
+
+        service.maintain(YearMonth.of(2025, 1));
+
+        verify(jdbcTemplate).execute("ALTER TABLE transfers DETACH PARTITION transfers_y2023m11 CONCURRENTLY");
+        verify(jdbcTemplate, never()).execute(eq("ALTER TABLE transfers DETACH PARTITION transfers_y2023m12 CONCURRENTLY"));
+        assertThat(service.historyStart()).isEqualTo(LocalDateTime.of(2023, 12, 1, 0, 0));
+    }
+
+    @Test
+    @DisplayName("maintain - без завершённых снимков ничего не отсоединяется")
+    void maintain_ShouldNotDetachWithoutSnapshots() {
+
+        TransferPartitionService service = new TransferPartitionService(jdbcTemplate, 0, 12, 4);
+        when(jdbcTemplate.queryForList(TransferPartitionService.LIST_PARTITIONS, String.class))
+                .thenReturn(List.of("transfers_y2023m12", "transfers_y2025m01"));
+
+        service.maintain(YearMonth.of(2025, 1));
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    @DisplayName("maintain - должен доделать прерванное отсоединение через FINALIZE")
+    void maintain_ShouldFinalizePendingDetach() {
+
+        TransferPartitionService service = new TransferPartitionService(jdbcTemplate, 0, 12, 4);
+        when(jdbcTemplate.queryForList(TransferPartitionService.LIST_PARTITIONS, String.class))
+                .thenReturn(List.of("transfers_y2023m12", "transfers_y2025m01"));
+        when(jdbcTemplate.queryForList(TransferPartitionService.LIST_PENDING_DETACH, String.class))
+                .thenReturn(List.of("transfers_y2023m12"));
+
+        service.maintain(YearMonth.of(2025, 1));
+
+        verify(jdbcTemplate).execute("ALTER TABLE transfers DETACH PARTITION transfers_y2023m12 FINALIZE");
+        verify(jdbcTemplate, never()).execute(eq("ALTER TABLE transfers DETACH PARTITION transfers_y2023m12 CONCURRENTLY"));
+    }
+
+    @Test
+    @DisplayName("expired - не должен ничего отсоединять при выключенном хранении")
+    void expired_ShouldBeEmptyWhenRetentionDisabled() {
+
+        TransferPartitionService service = new TransferPartitionService(jdbcTemplate, 3, 0, 4);
+
+        assertThat(service.expired(List.of("transfers_y2000m01"), YearMonth.of(2025, 1))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("historyStart - при выключенном хранении журнал считается полным")
+    void historyStart_ShouldBeNullWhenRetentionDisabled() {
+
+        TransferPartitionService service = new TransferPartitionService(jdbcTemplate, 0, 0, 4);
+        when(jdbcTemplate.queryForList(TransferPartitionService.LIST_PARTITIONS, String.class))
+                .thenReturn(List.of("transfers_y2023m12", "transfers_y2025m01"));
+
+        service.maintain(YearMonth.of(2025, 1));
+
+        assertThat(service.historyStart()).isNull();
+    }
+}
@@ -1,11 +1,22 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferItemResultDto;
+import com.example.bankcards.dto.TransferRequestDto;
+import com.example.bankcards.dto.TransferStatusDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.TransferRequest;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.ResourceNotFoundException;
 import com.example.bankcards.repository.CardRepository;
-import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.TransferIdempotencyKeyRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.TransferRequestRepository;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.util.CardMaskingUtil;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.UuidUtil;
 import com.example.bankcards.util.ValidationUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -14,11 +25,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -35,11 +51,29 @@ class TransferServiceTest {
     private CardRepository cardRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private TransferRepository transferRepository;
+
+    @Mock
+    private TransferRequestRepository transferRequestRepository;
 
     @Mock
     private ValidationUtil validationUtil;
 
+    @Mock
+    private LockPolicy lockPolicy;
+
+    @Mock
+    private TransferVelocityLimiter velocityLimiter;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private TransferIdempotencyKeyRepository transferIdempotencyKeyRepository;
+
+    @Spy
+    private CardMaskingUtil cardMaskingUtil = new CardMaskingUtil();
+
     @InjectMocks
     private TransferService transferService;
 
@@ -48,6 +82,7 @@ class TransferServiceTest {
     private UUID toCardId;
 
     private User testUser;
+    private AuthenticatedUser principal;
     private Card fromCard;
     private Card toCard;
 
@@ -67,12 +102,13 @@ class TransferServiceTest {
         testUser.setUsername("testuser");
         testUser.setRole(role);
         testUser.setEnabled(true);
+        principal = new AuthenticatedUser(userId, "testuser", "ROLE_USER", 0, UUID.randomUUID(), Instant.now().plusSeconds(3600));
 
         fromCard = new Card();
         fromCard.setId(fromCardId);
         fromCard.setUser(testUser);
         fromCard.setStatus("ACTIVE");
-        fromCard.setBalance(BigDecimal.valueOf(1000));
+        fromCard.setBalance(Money.of(BigDecimal.valueOf(1000)));
         fromCard.setExpMonth(12);
         fromCard.setExpYear(2030);
         fromCard.setUpdatedAt(LocalDateTime.now());
@@ -81,10 +117,12 @@ class TransferServiceTest {
         toCard.setId(toCardId);
         toCard.setUser(testUser);
         toCard.setStatus("ACTIVE");
-        toCard.setBalance(BigDecimal.valueOf(500));
+        toCard.setBalance(Money.of(BigDecimal.valueOf(500)));
         toCard.setExpMonth(12);
         toCard.setExpYear(2030);
         toCard.setUpdatedAt(LocalDateTime.now());
+
+        ReflectionTestUtils.setField(transferService, "batchMaxSize", 10);
     }
 
     @Test
@@ -93,14 +131,15 @@ class TransferServiceTest {
 
         BigDecimal amount = BigDecimal.valueOf(200);
 
-        when(validationUtil.isValidAmount(amount)).thenReturn(true);
+        when(validationUtil.isValidAmount(Money.of(amount))).thenReturn(true);
         when(validationUtil.isCardExpired(anyInt(), anyInt())).thenReturn(false);
-        when(userRepository.findByUsername("testuser"))
-                .thenReturn(Optional.of(testUser));
         when(cardRepository.findBothByIdForUpdate(fromCardId, toCardId))
                 .thenReturn(List.of(fromCard, toCard));
 
-        transferService.transfer(fromCardId, toCardId, amount, "testuser");
+        Transfer result = transferService.transfer(fromCardId, toCardId, amount, principal);
+
+        verify(lockPolicy).applyLockTimeout();
+        verify(lockPolicy).recordLockWait(eq(TransferService.LOCK_OPERATION), anyLong());
 
         ArgumentCaptor<Card> captor = ArgumentCaptor.forClass(Card.class);
         verify(cardRepository, times(2)).save(captor.capture());
@@ -118,13 +157,25 @@ class TransferServiceTest {
                 .orElseThrow();
 
         assertThat(savedFrom.getBalance())
-                .isEqualByComparingTo(BigDecimal.valueOf(800));
+                .isEqualTo(Money.of(BigDecimal.valueOf(800)));
 
         assertThat(savedTo.getBalance())
-                .isEqualByComparingTo(BigDecimal.valueOf(700));
+                .isEqualTo(Money.of(BigDecimal.valueOf(700)));
 
         assertThat(savedFrom.getUpdatedAt()).isNotNull();
         assertThat(savedTo.getUpdatedAt()).isNotNull();
+
+        ArgumentCaptor<Transfer> transferCaptor = ArgumentCaptor.forClass(Transfer.class);
+        verify(transferRepository).save(transferCaptor.capture());
+
+        Transfer ledgerRow = transferCaptor.getValue();
+        assertThat(ledgerRow).isSameAs(result);
+        assertThat(ledgerRow.getId()).isNotNull();
+        assertThat(ledgerRow.isNew()).isTrue();
+        assertThat(ledgerRow.getFromCard()).isEqualTo(savedFrom);
+        assertThat(ledgerRow.getToCard()).isEqualTo(savedTo);
+        assertThat(ledgerRow.getAmount()).isEqualTo(Money.of(amount));
+        assertThat(ledgerRow.getCreatedAt()).isEqualTo(savedFrom.getUpdatedAt());
     }
 
     @Test
@@ -133,26 +184,24 @@ class TransferServiceTest {
 
         BigDecimal amount = BigDecimal.valueOf(-100);
 
-        when(validationUtil.isValidAmount(amount)).thenReturn(false);
+        when(validationUtil.isValidAmount(Money.of(amount))).thenReturn(false);
 
         assertThrows(IllegalArgumentException.class,
-                () -> transferService.transfer(fromCardId, toCardId, amount, "testuser"));
+                () -> transferService.transfer(fromCardId, toCardId, amount, principal));
 
         verify(cardRepository, never()).save(any());
     }
 
     @Test
-    @DisplayName("transfer - должен выбросить исключение если пользователь не найден")
-    void transfer_ShouldThrowException_WhenUserNotFound() {
+    @DisplayName("transfer - должен выбросить исключение если пользователь не передан")
+    void transfer_ShouldThrowException_WhenUserMissing() {
 
         BigDecimal amount = BigDecimal.valueOf(100);
 
-        when(validationUtil.isValidAmount(amount)).thenReturn(true);
-        when(userRepository.findByUsername("testuser"))
-                .thenReturn(Optional.empty());
+        when(validationUtil.isValidAmount(Money.of(amount))).thenReturn(true);
 
-        assertThrows(ResourceNotFoundException.class,
-                () -> transferService.transfer(fromCardId, toCardId, amount, "testuser"));
+        assertThrows(IllegalArgumentException.class,
+                () -> transferService.transfer(fromCardId, toCardId, amount, null));
 
         verify(cardRepository, never()).save(any());
     }
@@ -163,14 +212,12 @@ class TransferServiceTest {
 
         BigDecimal amount = BigDecimal.valueOf(100);
 
-        when(validationUtil.isValidAmount(amount)).thenReturn(true);
-        when(userRepository.findByUsername("testuser"))
-                .thenReturn(Optional.of(testUser));
+        when(validationUtil.isValidAmount(Money.of(amount))).thenReturn(true);
         when(cardRepository.findBothByIdForUpdate(fromCardId, toCardId))
                 .thenReturn(List.of(fromCard)); // меньше 2
 
         assertThrows(ResourceNotFoundException.class,
-                () -> transferService.transfer(fromCardId, toCardId, amount, "testuser"));
+                () -> transferService.transfer(fromCardId, toCardId, amount, principal));
 
         verify(cardRepository, never()).save(any());
     }
@@ -186,35 +233,113 @@ class TransferServiceTest {
 
         toCard.setUser(anotherUser);
 
-        when(validationUtil.isValidAmount(amount)).thenReturn(true);
-        when(userRepository.findByUsername("testuser"))
-                .thenReturn(Optional.of(testUser));
+        when(validationUtil.isValidAmount(Money.of(amount))).thenReturn(true);
         when(cardRepository.findBothByIdForUpdate(fromCardId, toCardId))
                 .thenReturn(List.of(fromCard, toCard));
 
         assertThrows(AccessDeniedException.class,
-                () -> transferService.transfer(fromCardId, toCardId, amount, "testuser"));
+                () -> transferService.transfer(fromCardId, toCardId, amount, principal));
 
         verify(cardRepository, never()).save(any());
     }
 
+    @Test
+    @DisplayName("transferToCustomer - должен перевести на карту другого клиента")
+    void transferToCustomer_ShouldAllowForeignDestination() {
+
+        BigDecimal amount = BigDecimal.valueOf(100);
+
+        User anotherUser = new User();
+        anotherUser.setId(UUID.randomUUID());
+        toCard.setUser(anotherUser);
+
+        when(validationUtil.isValidAmount(Money.of(amount))).thenReturn(true);
+        when(validationUtil.isCardExpired(anyInt(), anyInt())).thenReturn(false);
+        when(cardRepository.findBothByIdForUpdate(fromCardId, toCardId))
+                .thenReturn(List.of(fromCard, toCard));
+
+        transferService.transferToCustomer(fromCardId, toCardId, amount, principal, null);
+
+        assertThat(fromCard.getBalance()).isEqualTo(Money.of(BigDecimal.valueOf(900)));
+        assertThat(toCard.getBalance()).isEqualTo(Money.of(BigDecimal.valueOf(600)));
+    }
+
+    @Test
+    @DisplayName("transferToCustomer - должен запретить списание с чужой карты")
+    void transferToCustomer_ShouldRequireOwnSourceCard() {
+
+        BigDecimal amount = BigDecimal.valueOf(100);
+
+        User anotherUser = new User();
+        anotherUser.setId(UUID.randomUUID());
+        fromCard.setUser(anotherUser);
+
+        when(validationUtil.isValidAmount(Money.of(amount))).thenReturn(true);
+        when(cardRepository.findBothByIdForUpdate(fromCardId, toCardId))
+                .thenReturn(List.of(fromCard, toCard));
+
+        assertThrows(AccessDeniedException.class,
+                () -> transferService.transferToCustomer(fromCardId, toCardId, amount, principal, null));
+
+        verify(cardRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("transferToCustomer - неактивная и просроченная чужая карта должны давать один и тот же отказ")
+    void transferToCustomer_ShouldHideDestinationState() {
+
+        BigDecimal amount = BigDecimal.valueOf(100);
+
+        User anotherUser = new User();
+        anotherUser.setId(UUID.randomUUID());
+        toCard.setUser(anotherUser);
+        toCard.setStatus("BLOCKED");
+
+        when(validationUtil.isValidAmount(Money.of(amount))).thenReturn(true);
+        when(validationUtil.isCardExpired(anyInt(), anyInt())).thenReturn(false);
+        when(cardRepository.findBothByIdForUpdate(fromCardId, toCardId))
+                .thenReturn(List.of(fromCard, toCard));
+
+        IllegalStateException inactive = assertThrows(IllegalStateException.class,
+                () -> transferService.transferToCustomer(fromCardId, toCardId, amount, principal, null));
+
+        toCard.setStatus("ACTIVE");
+        toCard.setExpYear(2001);
+        when(validationUtil.isCardExpired(12, 2001)).thenReturn(true);
+
+        IllegalStateException expired = assertThrows(IllegalStateException.class,
+                () -> transferService.transferToCustomer(fromCardId, toCardId, amount, principal, null));
+
+        assertThat(inactive.getMessage()).isEqualTo(TransferService.DESTINATION_REJECTED);
+        assertThat(expired.getMessage()).isEqualTo(TransferService.DESTINATION_REJECTED);
+        verify(cardRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("checkSourceCard - должен запретить чужую или несуществующую карту списания")
+    void checkSourceCard_ShouldRequireOwnCard() {
+
+        when(cardRepository.findByIdAndUserId(fromCardId, userId)).thenReturn(Optional.empty());
+
+        assertThrows(AccessDeniedException.class, () -> transferService.checkSourceCard(fromCardId, principal));
+    }
+
     @Test
     @DisplayName("transfer - должен выбросить исключение если карта просрочена")
     void transfer_ShouldThrowException_WhenCardExpired() {
 
         BigDecimal amount = BigDecimal.valueOf(100);
 
-        when(validationUtil.isValidAmount(amount)).thenReturn(true);
+        when(validationUtil.isValidAmount(Money.of(amount))).thenReturn(true);
         when(validationUtil.isCardExpired(anyInt(), anyInt())).thenReturn(true);
-        when(userRepository.findByUsername("testuser"))
-                .thenReturn(Optional.of(testUser));
         when(cardRepository.findBothByIdForUpdate(fromCardId, toCardId))
                 .thenReturn(List.of(fromCard, toCard));
 
         assertThrows(IllegalStateException.class,
-                () -> transferService.transfer(fromCardId, toCardId, amount, "testuser"));
+                () -> transferService.transfer(fromCardId, toCardId, amount, principal));
 
         verify(cardRepository, never()).save(any());
+        verify(transferRepository, never()).save(any());
     }
 
     @Test
@@ -223,16 +348,263 @@ class TransferServiceTest {
 
         BigDecimal amount = BigDecimal.valueOf(2000);
 
-        when(validationUtil.isValidAmount(amount)).thenReturn(true);
+        when(validationUtil.isValidAmount(Money.of(amount))).thenReturn(true);
         when(validationUtil.isCardExpired(anyInt(), anyInt())).thenReturn(false);
-        when(userRepository.findByUsername("testuser"))
-                .thenReturn(Optional.of(testUser));
         when(cardRepository.findBothByIdForUpdate(fromCardId, toCardId))
                 .thenReturn(List.of(fromCard, toCard));
 
         assertThrows(IllegalStateException.class,
-                () -> transferService.transfer(fromCardId, toCardId, amount, "testuser"));
+                () -> transferService.transfer(fromCardId, toCardId, amount, principal));
 
         verify(cardRepository, never()).save(any());
+        verify(transferRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("transferBatch - должен блокировать карты одним запросом и учитывать баланс между элементами")
+    @SuppressWarnings("unchecked")
+    void transferBatch_ShouldApplyItemsInOrderWithRunningBalance() {
+
+        when(validationUtil.isValidAmount(any())).thenReturn(true);
+        when(validationUtil.isCardExpired(anyInt(), anyInt())).thenReturn(false);
+        when(cardRepository.findAllByIdForUpdate(any()))
+                .thenReturn(List.of(fromCard, toCard));
+
+        List<BatchTransferItemResultDto> results = transferService.transferBatch(List.of(
+                new TransferRequestDto(fromCardId, toCardId, BigDecimal.valueOf(600)),
+                new TransferRequestDto(fromCardId, toCardId, BigDecimal.valueOf(600)),
+                new TransferRequestDto(toCardId, fromCardId, BigDecimal.valueOf(100)),
+                new TransferRequestDto(fromCardId, UUID.randomUUID(), BigDecimal.valueOf(1))
+        ), principal);
+
+        assertThat(results.get(0).status()).isEqualTo(BatchTransferItemResultDto.STATUS_COMPLETED);
+        assertThat(results.get(1).status()).isEqualTo(BatchTransferItemResultDto.STATUS_REJECTED);
+        assertThat(results.get(1).error()).isEqualTo("Insufficient funds");
+        assertThat(results.get(2).status()).isEqualTo(BatchTransferItemResultDto.STATUS_COMPLETED);
+        assertThat(results.get(3).status()).isEqualTo(BatchTransferItemResultDto.STATUS_REJECTED);
+
+        assertThat(fromCard.getBalance()).isEqualTo(Money.of(BigDecimal.valueOf(500)));
+        assertThat(toCard.getBalance()).isEqualTo(Money.of(BigDecimal.valueOf(1000)));
+
+        verify(cardRepository, times(1)).findAllByIdForUpdate(any());
+
+        ArgumentCaptor<Collection<Transfer>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(transferRepository).saveAll(captor.capture());
+        assertThat(captor.getValue().size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("transferBatch - должен отклонить слишком большой пакет")
+    void transferBatch_ShouldRejectOversizedBatch() {
+
+        List<TransferRequestDto> items = Collections.nCopies(11,
+                new TransferRequestDto(fromCardId, toCardId, BigDecimal.ONE));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> transferService.transferBatch(items, principal));
+
+        verify(cardRepository, never()).findAllByIdForUpdate(any());
+    }
+
+    @Test
+    @DisplayName("processQueued - должен провести пакет заявок из очереди и проставить статусы")
+    void processQueued_ShouldCompleteAndRejectRequests() {
+
+        TransferRequest ok = queued(fromCardId, toCardId, BigDecimal.valueOf(700));
+        TransferRequest tooMuch = queued(fromCardId, toCardId, BigDecimal.valueOf(700));
+
+        when(validationUtil.isValidAmount(any())).thenReturn(true);
+        when(validationUtil.isCardExpired(anyInt(), anyInt())).thenReturn(false);
+        when(transferRequestRepository.claimPending(10)).thenReturn(List.of(ok, tooMuch));
+        when(cardRepository.findAllByIdForUpdate(any()))
+                .thenReturn(List.of(fromCard, toCard));
+
+        int processed = transferService.processQueued(10);
+
+        assertEquals(2, processed);
+        assertThat(ok.getStatus()).isEqualTo(TransferService.REQUEST_COMPLETED);
+        assertThat(tooMuch.getStatus()).isEqualTo(TransferService.REQUEST_REJECTED);
+        assertThat(tooMuch.getError()).isEqualTo("Insufficient funds");
+        assertNotNull(ok.getProcessedAt());
+        assertThat(fromCard.getBalance()).isEqualTo(Money.of(BigDecimal.valueOf(300)));
+
+        verify(cardRepository, times(1)).findAllByIdForUpdate(any());
+    }
+
+    @Test
+    @DisplayName("submit - повтор с тем же Idempotency-Key должен вернуть ту же заявку")
+    void submit_ShouldReturnExistingRequestForSameKey() {
+
+        TransferRequest existing = queued(fromCardId, toCardId, BigDecimal.valueOf(50));
+
+        when(validationUtil.isValidAmount(any())).thenReturn(true);
+        when(transferRequestRepository.findByUserIdAndIdempotencyKey(userId, "key-1"))
+                .thenReturn(Optional.of(existing));
+
+        TransferRequest result = transferService.submit(fromCardId, toCardId, BigDecimal.valueOf(50), principal, "key-1");
+
+        assertSame(existing, result);
+        verify(transferRequestRepository, never()).save(any());
+    }
+
+    private TransferRequest queued(UUID from, UUID to, BigDecimal amount) {
+        TransferRequest request = new TransferRequest();
+        request.setUserId(userId);
+        request.setFromCardId(from);
+        request.setToCardId(to);
+        request.setAmount(Money.of(amount));
+        request.setStatus(TransferService.REQUEST_PENDING);
+        return request;
+    }
+
+    @Test
+    @DisplayName("transfer - в режиме CONDITIONAL_UPDATE должен выполнить перевод одним запросом без загрузки карт")
+    void transfer_ConditionalUpdate_ShouldNotLoadCards() {
+
+        ReflectionTestUtils.setField(transferService, "mode", TransferMode.CONDITIONAL_UPDATE);
+        BigDecimal amount = BigDecimal.valueOf(200);
+
+        when(validationUtil.isValidAmount(Money.of(amount))).thenReturn(true);
+        when(cardRepository.transferConditionally(any(), eq(fromCardId), eq(toCardId), eq(userId),
+                eq(Money.of(amount).toBigDecimal()), anyInt(), any(), eq("key-1"), eq(false)))
+                .thenReturn(3L);
+        when(cardRepository.getReferenceById(fromCardId)).thenReturn(fromCard);
+
+        // Роль в токене устарела: лимит должен браться по роли владельца карты, как в пессимистичном режиме
+        AuthenticatedUser staleToken = new AuthenticatedUser(userId, "testuser", "ROLE_ADMIN", 0, UUID.randomUUID(),
+                Instant.now().plusSeconds(3600));
+
+        Transfer result = transferService.transfer(fromCardId, toCardId, amount, staleToken, "key-1");
+
+        assertThat(result.getAmount()).isEqualTo(Money.of(amount));
+        assertThat(result.getIdempotencyKey()).isEqualTo("key-1");
+        verify(velocityLimiter).reserve(eq(fromCardId), eq("ROLE_USER"), eq(Money.of(amount)), any());
+        verify(cardRepository, never()).findBothByIdForUpdate(any(), any());
+        verify(cardRepository, never()).save(any());
+        verify(transferRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("transfer - в режиме CONDITIONAL_UPDATE должен сообщить причину отказа")
+    void transfer_ConditionalUpdate_ShouldExplainRejection() {
+
+        ReflectionTestUtils.setField(transferService, "mode", TransferMode.CONDITIONAL_UPDATE);
+        BigDecimal amount = BigDecimal.valueOf(2000);
+
+        when(validationUtil.isValidAmount(Money.of(amount))).thenReturn(true);
+        when(validationUtil.isCardExpired(anyInt(), anyInt())).thenReturn(false);
+        when(cardRepository.transferConditionally(any(), any(), any(), any(), any(), anyInt(), any(), any(), anyBoolean()))
+                .thenReturn(0L);
+        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findById(toCardId)).thenReturn(Optional.of(toCard));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> transferService.transfer(fromCardId, toCardId, amount, principal));
+
+        assertThat(e.getMessage()).isEqualTo("Insufficient funds");
+        assertThat(fromCard.getBalance()).isEqualTo(Money.of(BigDecimal.valueOf(1000)));
+        verifyNoInteractions(velocityLimiter);
+    }
+
+    @Test
+    @DisplayName("transfer - в режиме CONDITIONAL_UPDATE чужая карта списания не должна трогать лимиты её владельца")
+    void transfer_ConditionalUpdate_ShouldNotReserveForForeignCard() {
+
+        ReflectionTestUtils.setField(transferService, "mode", TransferMode.CONDITIONAL_UPDATE);
+        BigDecimal amount = BigDecimal.valueOf(100);
+
+        User anotherUser = new User();
+        anotherUser.setId(UUID.randomUUID());
+        fromCard.setUser(anotherUser);
+
+        when(validationUtil.isValidAmount(Money.of(amount))).thenReturn(true);
+        when(cardRepository.transferConditionally(any(), any(), any(), any(), any(), anyInt(), any(), any(), anyBoolean()))
+                .thenReturn(0L);
+        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findById(toCardId)).thenReturn(Optional.of(toCard));
+
+        assertThrows(AccessDeniedException.class,
+                () -> transferService.transfer(fromCardId, toCardId, amount, principal));
+
+        verifyNoInteractions(velocityLimiter);
+    }
+
+    @Test
+    @DisplayName("transferToCustomer - в режиме CONDITIONAL_UPDATE пропавшая карта получателя должна давать общий отказ")
+    void transferToCustomer_ConditionalUpdate_ShouldHideMissingDestination() {
+
+        ReflectionTestUtils.setField(transferService, "mode", TransferMode.CONDITIONAL_UPDATE);
+        BigDecimal amount = BigDecimal.valueOf(100);
+
+        when(validationUtil.isValidAmount(Money.of(amount))).thenReturn(true);
+        when(cardRepository.transferConditionally(any(), any(), any(), any(), any(), anyInt(), any(), any(), anyBoolean()))
+                .thenReturn(0L);
+        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findById(toCardId)).thenReturn(Optional.empty());
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> transferService.transferToCustomer(fromCardId, toCardId, amount, principal, null));
+
+        assertThat(e.getMessage()).isEqualTo(TransferService.DESTINATION_REJECTED);
+    }
+
+    @Test
+    @DisplayName("getStatus - карта получателя другого клиента должна отдаваться маской без ID")
+    void getStatus_ShouldMaskForeignDestination() {
+
+        User anotherUser = new User();
+        anotherUser.setId(UUID.randomUUID());
+        toCard.setUser(anotherUser);
+        toCard.setPanLast4("4321");
+
+        Transfer transfer = new Transfer();
+        transfer.setFromCard(fromCard);
+        transfer.setToCard(toCard);
+        transfer.setAmount(Money.of(BigDecimal.TEN));
+        transfer.setCreatedAt(LocalDateTime.now());
+
+        when(transferRequestRepository.findById(transfer.getId())).thenReturn(Optional.empty());
+        when(transferRepository.findByIdAndCreatedAtBetween(eq(transfer.getId()), any(), any())).thenReturn(Optional.of(transfer));
+
+        TransferStatusDto status = transferService.getStatus(transfer.getId(), principal);
+
+        assertThat(status.toCardId()).isNull();
+        assertThat(status.toCardMasked()).isEqualTo("**** **** **** 4321");
+        assertThat(status.fromCardId()).isEqualTo(fromCardId);
+    }
+
+    @Test
+    @DisplayName("getStatus - неизвестный id с временем должен искаться только в секциях около этого времени")
+    void getStatus_WithUnknownTimeOrderedId_ShouldNotScanAllPartitions() {
+
+        UUID transferId = UuidUtil.timeOrdered();
+
+        when(transferRequestRepository.findById(transferId)).thenReturn(Optional.empty());
+        when(transferRepository.findByIdAndCreatedAtBetween(eq(transferId), any(), any())).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> transferService.getStatus(transferId, principal));
+
+        verify(transferRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("transfer - в режиме OPTIMISTIC должен читать карты без блокировки")
+    void transfer_Optimistic_ShouldNotLockCards() {
+
+        ReflectionTestUtils.setField(transferService, "mode", TransferMode.OPTIMISTIC);
+        BigDecimal amount = BigDecimal.valueOf(200);
+
+        when(validationUtil.isValidAmount(Money.of(amount))).thenReturn(true);
+        when(validationUtil.isCardExpired(anyInt(), anyInt())).thenReturn(false);
+        when(cardRepository.findAllById(List.of(fromCardId, toCardId)))
+                .thenReturn(List.of(toCard, fromCard));
+
+        transferService.transfer(fromCardId, toCardId, amount, principal);
+
+        assertThat(fromCard.getBalance()).isEqualTo(Money.of(BigDecimal.valueOf(800)));
+        assertThat(toCard.getBalance()).isEqualTo(Money.of(BigDecimal.valueOf(700)));
+        verify(cardRepository, never()).findBothByIdForUpdate(any(), any());
+        verify(lockPolicy, never()).applyLockTimeout();
+        verify(transferRepository).save(any(Transfer.class));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,105 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.TransferLimitProperties;
+import com.example.bankcards.util.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TransferVelocityLimiter Unit Tests")
+class TransferVelocityLimiterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TransferLimitProperties properties;
+    private TransferVelocityLimiter limiter;
+
+    private final UUID cardId = UUID.randomUUID();
+    private final LocalDateTime now = LocalDateTime.of(2025, 3, 10, 12, 30);
+
+    @BeforeEach
+    void setUp() {
+        properties = new TransferLimitProperties();
+        properties.getDefaults().setDailyAmount(BigDecimal.valueOf(1000));
+        properties.getDefaults().setDailyCount(3);
+        properties.getDefaults().setMonthlyAmount(BigDecimal.valueOf(2500));
+
+        limiter = new TransferVelocityLimiter(properties, jdbcTemplate, transactionManager);
+    }
+
+    @Test
+    @DisplayName("reserve - должен отказать при превышении суточной суммы и не учитывать отказанный перевод")
+    void reserve_ShouldRejectOverDailyAmount() {
+
+        limiter.reserve(cardId, "ROLE_USER", Money.of(BigDecimal.valueOf(600)), now);
+
+        assertThatThrownBy(() -> limiter.reserve(cardId, "ROLE_USER", Money.of(BigDecimal.valueOf(500)), now))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Daily amount transfer limit exceeded");
+
+        assertDoesNotThrow(() -> limiter.reserve(cardId, "ROLE_USER", Money.of(BigDecimal.valueOf(400)), now));
+        verify(jdbcTemplate, times(1)).query(eq(TransferVelocityLimiter.CARD_BUCKETS_QUERY), any(RowCallbackHandler.class), any(), any());
+    }
+
+    @Test
+    @DisplayName("reserve - суточное окно должно сдвигаться, а месячное учитывать прошлые дни")
+    void reserve_ShouldSlideWindows() {
+
+        limiter.reserve(cardId, "ROLE_USER", Money.of(BigDecimal.valueOf(1000)), now);
+        limiter.reserve(cardId, "ROLE_USER", Money.of(BigDecimal.valueOf(1000)), now.plusDays(1));
+
+        assertThatThrownBy(() -> limiter.reserve(cardId, "ROLE_USER", Money.of(BigDecimal.valueOf(600)), now.plusDays(2)))
+                .hasMessage("Monthly amount transfer limit exceeded");
+        assertDoesNotThrow(() -> limiter.reserve(cardId, "ROLE_USER", Money.of(BigDecimal.valueOf(600)), now.plusDays(31)));
+    }
+
+    @Test
+    @DisplayName("reserve - лимит роли должен заменять лимит по умолчанию")
+    void reserve_ShouldUseRoleLimit() {
+
+        TransferLimitProperties.Limit admin = new TransferLimitProperties.Limit();
+        admin.setDailyAmount(BigDecimal.valueOf(100000));
+        properties.getRoles().put("ROLE_ADMIN", admin);
+
+        assertDoesNotThrow(() -> limiter.reserve(cardId, "ROLE_ADMIN", Money.of(BigDecimal.valueOf(5000)), now));
+    }
+
+    @Test
+    @DisplayName("reserve - при откате транзакции перевод должен вычитаться из счётчика")
+    void reserve_ShouldReleaseOnRollback() {
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            limiter.reserve(cardId, "ROLE_USER", Money.of(BigDecimal.valueOf(900)), now);
+            for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+                sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertDoesNotThrow(() -> limiter.reserve(cardId, "ROLE_USER", Money.of(BigDecimal.valueOf(900)), now));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.bankcards.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шифрование, расшифровка и хэш PAN: прежняя реализация (Cipher.getInstance и SecretKeySpec на каждый вызов,
+ * AES/ECB, hex через Integer.toHexString) против CardEncryptionUtil. Аллокации — с профилировщиком gc.
+ *
+ * Запуск: mvn -Pbenchmark test-compile exec:exec -Djmh.args="CardEncryptionBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CardEncryptionBenchmark {
+
+    private static final String KEY = "benchmark-key-benchmark-key-benchmark-key";
+    private static final String PAN = "4111111111111111";
+
+    private CardEncryptionUtil util;
+    private String encrypted;
+    private String legacyEncrypted;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        util = new CardEncryptionUtil(KEY, 1, "");
+        encrypted = util.encryptPan(PAN);
+        legacyEncrypted = legacyEncrypt(PAN);
+    }
+
+    @Benchmark
+    public String encryptLegacy() throws Exception {
+        return legacyEncrypt(PAN);
+    }
+
+    @Benchmark
+    public String encryptGcm() {
+        return util.encryptPan(PAN);
+    }
+
+    @Benchmark
+    public String decryptLegacy() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        SecretKey key = new SecretKeySpec(KEY.getBytes(), 0, 32, "AES");
+        cipher.init(Cipher.DECRYPT_MODE, key);
+        return new String(cipher.doFinal(Base64.getDecoder().decode(legacyEncrypted)));
+    }
+
+    @Benchmark
+    public String decryptGcm() {
+        return util.decryptPan(encrypted);
+    }
+
+    @Benchmark
+    public String hashLegacy() throws Exception {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(PAN.getBytes());
+        StringBuilder hexString = new StringBuilder();
+        for (byte b : hash) {
+            String hex = Integer.toHexString(0xff & b);
+            if (hex.length() == 1) hexString.append('0');
+            hexString.append(hex);
+        }
+        return hexString.toString();
+    }
+
+    @Benchmark
+    public String hash() {
+        return util.hashPan(PAN);
+    }
+
+    private static String legacyEncrypt(String pan) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        SecretKey key = new SecretKeySpec(KEY.getBytes(), 0, 32, "AES");
+        cipher.init(Cipher.ENCRYPT_MODE, key);
+        return Base64.getEncoder().encodeToString(cipher.doFinal(pan.getBytes()));
+    }
+}
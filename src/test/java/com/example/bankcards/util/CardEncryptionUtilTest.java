@@ -0,0 +1,86 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("CardEncryptionUtil Unit Tests")
+class CardEncryptionUtilTest {
+
+    private static final String KEY = "0123456789abcdef0123456789abcdef-tail";
+    private static final String NEW_KEY = "fedcba9876543210fedcba9876543210-next";
+    private static final String PAN = "4111111111111111";
+
+    private final CardEncryptionUtil util = new CardEncryptionUtil(KEY, 1, "");
+
+    @Test
+    @DisplayName("encryptPan - должен шифровать GCM со случайным IV и префиксом версии ключа")
+    void encryptPan_ShouldUseVersionedGcm() {
+
+        String first = util.encryptPan(PAN);
+        String second = util.encryptPan(PAN);
+
+        assertThat(first).startsWith("v1:").isNotEqualTo(second);
+        assertThat(util.decryptPan(first)).isEqualTo(PAN);
+        assertThat(util.decryptPan(second)).isEqualTo(PAN);
+    }
+
+    @Test
+    @DisplayName("decryptPan - должен читать значения, зашифрованные прежним AES/ECB")
+    void decryptPan_ShouldReadLegacyEcb() throws Exception {
+
+        Cipher ecb = Cipher.getInstance("AES");
+        ecb.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY.getBytes(StandardCharsets.UTF_8), 0, 32, "AES"));
+        String legacy = Base64.getEncoder().encodeToString(ecb.doFinal(PAN.getBytes(StandardCharsets.US_ASCII)));
+
+        assertThat(util.decryptPan(legacy)).isEqualTo(PAN);
+    }
+
+    @Test
+    @DisplayName("decryptPan - должен отклонить подделанный шифротекст и неизвестную версию ключа")
+    void decryptPan_ShouldRejectTamperedOrUnknownVersion() {
+
+        String encrypted = util.encryptPan(PAN);
+        byte[] raw = Base64.getDecoder().decode(encrypted.substring(3));
+        raw[raw.length - 1] ^= 1;
+        String tampered = "v1:" + Base64.getEncoder().encodeToString(raw);
+
+        assertThatThrownBy(() -> util.decryptPan(tampered)).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> util.decryptPan("v2:" + encrypted.substring(3))).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    @DisplayName("decryptPan - после ротации должен читать значения v1 выведенным ключом, а шифровать ключом v2")
+    void decryptPan_AfterRotation_ShouldUseKeyFromPrefix() throws Exception {
+
+        String v1 = util.encryptPan(PAN);
+        Cipher ecb = Cipher.getInstance("AES");
+        ecb.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY.getBytes(StandardCharsets.UTF_8), 0, 32, "AES"));
+        String legacy = Base64.getEncoder().encodeToString(ecb.doFinal(PAN.getBytes(StandardCharsets.US_ASCII)));
+
+        CardEncryptionUtil rotated = new CardEncryptionUtil(NEW_KEY, 2, "1:" + KEY);
+        String v2 = rotated.encryptPan(PAN);
+
+        assertThat(rotated.decryptPan(v1)).isEqualTo(PAN);
+        assertThat(rotated.decryptPan(legacy)).isEqualTo(PAN);
+        assertThat(v2).startsWith("v2:");
+        assertThat(rotated.decryptPan(v2)).isEqualTo(PAN);
+        assertThatThrownBy(() -> util.decryptPan(v2)).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    @DisplayName("hashPan - должен давать тот же SHA-256 в hex, что и раньше")
+    void hashPan_ShouldKeepFormat() {
+
+        assertThat(util.hashPan("abc"))
+                .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+        assertThat(CardEncryptionUtil.toHex(new byte[]{0, 15, (byte) 0xA0, (byte) 0xFF})).isEqualTo("000fa0ff");
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.bankcards.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Арифметика одного перевода: проверка суммы, проверка остатка, списание и зачисление.
+ * Сравнивает BigDecimal (как было в TransferService) и Money на long.
+ * Аллокации смотреть через профилировщик gc (gc.alloc.rate.norm — байт на операцию).
+ *
+ * Запуск: mvn -Pbenchmark test-compile exec:exec -Djmh.args="MoneyBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MoneyBenchmark {
+
+    private BigDecimal fromDecimal;
+    private BigDecimal toDecimal;
+    private BigDecimal amountDecimal;
+
+    private Money fromMoney;
+    private Money toMoney;
+    private Money amountMoney;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        fromDecimal = new BigDecimal("1000000000.00");
+        toDecimal = new BigDecimal("1000000000.00");
+        amountDecimal = new BigDecimal("12.34");
+
+        fromMoney = Money.of(fromDecimal);
+        toMoney = Money.of(toDecimal);
+        amountMoney = Money.of(amountDecimal);
+    }
+
+    @Benchmark
+    public void bigDecimal(Blackhole blackhole) {
+        if (amountDecimal.compareTo(BigDecimal.ZERO) <= 0 || fromDecimal.compareTo(amountDecimal) < 0) {
+            throw new IllegalStateException();
+        }
+        // Переводим туда и обратно, чтобы балансы не уходили в ноль за время замера
+        BigDecimal from = fromDecimal.subtract(amountDecimal);
+        BigDecimal to = toDecimal.add(amountDecimal);
+        fromDecimal = from.add(amountDecimal);
+        toDecimal = to.subtract(amountDecimal);
+        blackhole.consume(from);
+        blackhole.consume(to);
+    }
+
+    @Benchmark
+    public void money(Blackhole blackhole) {
+        if (!amountMoney.isPositive() || fromMoney.isLessThan(amountMoney)) {
+            throw new IllegalStateException();
+        }
+        Money from = fromMoney.minus(amountMoney);
+        Money to = toMoney.plus(amountMoney);
+        fromMoney = from.plus(amountMoney);
+        toMoney = to.minus(amountMoney);
+        blackhole.consume(from);
+        blackhole.consume(to);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.bankcards.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Money Unit Tests")
+class MoneyTest {
+
+    @Test
+    @DisplayName("of - должен точно перевести сумму в копейки")
+    void of_ShouldConvertExactly() {
+
+        assertThat(Money.of(new BigDecimal("12.3")).minor()).isEqualTo(1230);
+        assertThat(Money.of(new BigDecimal("12.34")).toBigDecimal()).isEqualTo(new BigDecimal("12.34"));
+        assertThat(Money.of(null)).isNull();
+    }
+
+    @Test
+    @DisplayName("of - должен отклонить лишние знаки после запятой и слишком большие суммы")
+    void of_ShouldRejectInexactAmounts() {
+
+        assertThatThrownBy(() -> Money.of(new BigDecimal("0.001")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.of(new BigDecimal("100000000000000000000")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("plus/minus - должны сообщать о переполнении, а не заворачивать значение")
+    void arithmetic_ShouldDetectOverflow() {
+
+        Money max = Money.ofMinor(Long.MAX_VALUE);
+
+        assertThat(Money.ofMinor(150).plus(Money.ofMinor(50))).isEqualTo(Money.ofMinor(200));
+        assertThat(Money.ofMinor(150).minus(Money.ofMinor(200)).isNegative()).isTrue();
+        assertThatThrownBy(() -> max.plus(Money.ofMinor(1)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Amount overflow");
+    }
+
+    @Test
+    @DisplayName("JSON - должен сериализоваться числом с двумя знаками")
+    void json_ShouldUseDecimalNumber() throws Exception {
+
+        ObjectMapper mapper = new ObjectMapper();
+
+        assertThat(mapper.writeValueAsString(Money.ofMinor(1005))).isEqualTo("10.05");
+        assertThat(mapper.readValue("10.05", Money.class)).isEqualTo(Money.ofMinor(1005));
+    }
+}